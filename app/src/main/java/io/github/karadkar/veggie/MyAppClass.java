@@ -2,6 +2,10 @@ package io.github.karadkar.veggie;
 
 import android.app.Application;
 
+import com.greentopli.core.remote.ServiceGenerator;
+import com.greentopli.core.service.SyncScheduler;
+import com.greentopli.core.storage.helper.ProductCache;
+
 /**
  * Created by rnztx on 21/10/16.
  */
@@ -10,5 +14,16 @@ public class MyAppClass extends Application {
 	@Override
 	public void onCreate() {
 		super.onCreate();
+		ServiceGenerator.initialize(this, ServiceGenerator.DEFAULT_CACHE_SIZE);
+		// refresh stale data once first screen is drawn
+		SyncScheduler scheduler = SyncScheduler.getInstance(this);
+		scheduler.requestSync(SyncScheduler.Job.CATALOG, false);
+		scheduler.requestSync(SyncScheduler.Job.HISTORY, false);
+	}
+
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		ProductCache.getInstance(this).onTrimMemory(level);
 	}
 }
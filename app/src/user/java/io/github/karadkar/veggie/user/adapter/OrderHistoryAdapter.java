@@ -40,6 +40,12 @@ public class OrderHistoryAdapter extends RecyclerView.Adapter<OrderHistoryAdapte
         notifyDataSetChanged();
     }
 
+    public void addMoreData(List<OrderHistory> moreList) {
+        int start = mOrderHistoryList.size();
+        mOrderHistoryList.addAll(moreList);
+        notifyItemRangeInserted(start, moreList.size());
+    }
+
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
@@ -92,7 +98,7 @@ public class OrderHistoryAdapter extends RecyclerView.Adapter<OrderHistoryAdapte
             if (v.getId() == R.id.item_orderHistory_view_container) {
 
                 ProductAdapter adapter = new ProductAdapter(ProductAdapter.Mode.HISTORY, order.getOrderDate(), v.getContext());
-                adapter.addNewProducts(order.getProducts());
+                adapter.addNewProducts(order.getProducts(), order.getPurchasedItems());
 
                 // format date - Sun, 20 Dec 92
                 todayDate.setTimeInMillis(order.getOrderDate());
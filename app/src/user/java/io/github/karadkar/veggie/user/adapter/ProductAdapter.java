@@ -17,12 +17,16 @@ import com.google.firebase.analytics.FirebaseAnalytics;
 import com.greentopli.CommonUtils;
 import com.greentopli.Constants;
 import com.greentopli.core.storage.helper.CartDbHelper;
+import com.greentopli.core.storage.helper.CartIndex;
+import com.greentopli.core.storage.helper.CartWriteBuffer;
 import com.greentopli.model.Product;
 import com.greentopli.model.PurchasedItem;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -38,11 +42,22 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
     private static final String FORMAT_PRICE = "₹ %d";
     private static final String FORMAT_VOLUME = "%s";
     private List<Product> mProducts;
+    // order line of each product while showing history, keyed by product id
+    private Map<String, PurchasedItem> mPurchasedItems;
     private Context mContext;
     private CartDbHelper mCartDbHelper;
+    private CartIndex mCartIndex;
+    private CartWriteBuffer mCartWriteBuffer;
     private FirebaseAnalytics mFirebaseAnalytics;
     private Mode adapterMode;
     private long dateOfRequest;
+    // cart is loaded & kept current in background, bound rows are refreshed once it changed
+    private final CartIndex.Listener mCartIndexListener = new CartIndex.Listener() {
+        @Override
+        public void onCartIndexChanged() {
+            notifyDataSetChanged();
+        }
+    };
 
     public ProductAdapter(Mode adapterMode, Context context) {
         this(adapterMode, 0, context);
@@ -56,11 +71,27 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
 
     private ProductAdapter(List<Product> products, Context context) {
         this.mProducts = products;
+        this.mPurchasedItems = new HashMap<>();
         this.mContext = context;
         mCartDbHelper = new CartDbHelper(context);
+        mCartIndex = CartIndex.getInstance(context);
+        mCartWriteBuffer = CartWriteBuffer.getInstance(context);
         mFirebaseAnalytics = FirebaseAnalytics.getInstance(context);
     }
 
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        if (!adapterMode.equals(Mode.HISTORY))
+            mCartIndex.addListener(mCartIndexListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mCartIndex.removeListener(mCartIndexListener);
+        super.onDetachedFromRecyclerView(recyclerView);
+    }
+
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         // while displaying history - don't use CardView
@@ -91,12 +122,12 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
                     product.getPrice());
             holder.checkBox.setVisibility(View.VISIBLE);
             holder.checkBox.setChecked(
-                    mCartDbHelper.isProductAddedToCart(holder.product.getId())
+                    mCartIndex.isProductAddedToCart(holder.product.getId())
             );
         }
         // when managing Items present in cart
         else if (adapterMode.equals(Mode.CART)) {
-            PurchasedItem item = mCartDbHelper.getCartItem(product.getId(), false);
+            PurchasedItem item = getPurchasedItem(product.getId());
             formattedVolume = String.format(Locale.ENGLISH,
                     FORMAT_VOLUME,
                     CommonUtils.getVolumeExtension(item.getVolume(), product.getVolume()));
@@ -104,13 +135,12 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
                     FORMAT_PRICE,
                     item.getTotalPrice()
             );
-            holder.setCartItem(item);
             holder.volumeControls.setVisibility(View.VISIBLE);
             holder.volume.setText(formattedVolume);
         }
         // just checking order history
         else if (adapterMode.equals(Mode.HISTORY)) {
-            PurchasedItem item = mCartDbHelper.getCartItem(product.getId(), true, dateOfRequest);
+            PurchasedItem item = getPurchasedItem(product.getId());
             formattedPrice = String.format(Locale.ENGLISH,
                     FORMAT_PRICE_AND_VOLUME,
                     CommonUtils.getVolumeExtension(item.getVolume(), product.getVolume()),
@@ -120,23 +150,57 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
         holder.price.setText(formattedPrice);
     }
 
+    private PurchasedItem getPurchasedItem(String productId) {
+        // cart lines change with volume controls, index always has latest ones
+        if (adapterMode.equals(Mode.CART))
+            return mCartIndex.getCartItem(productId);
+        PurchasedItem item = mPurchasedItems.get(productId);
+        if (item == null) {
+            item = mCartDbHelper.getCartItem(productId, true, dateOfRequest);
+            mPurchasedItems.put(productId, item);
+        }
+        return item;
+    }
+
     @Override
     public int getItemCount() {
         return mProducts.size();
     }
 
     public int getCartItemCount() {
-        return mCartDbHelper.getProductIdsFromCart(false).size();
+        return mCartIndex.getItemCount();
     }
 
     public void addNewProducts(List<Product> list) {
         mProducts.clear();
+        mPurchasedItems.clear();
         mProducts.addAll(list);
         notifyDataSetChanged();
     }
 
+    public void addMoreProducts(List<Product> list) {
+        int start = mProducts.size();
+        mProducts.addAll(list);
+        notifyItemRangeInserted(start, list.size());
+    }
+
+    /**
+     * @param purchasedItems order lines of products while showing history, used instead of querying
+     *                       them while binding. Cart lines are always read from {@link CartIndex}
+     */
+    public void addNewProducts(List<Product> list, List<PurchasedItem> purchasedItems) {
+        mProducts.clear();
+        mPurchasedItems.clear();
+        mProducts.addAll(list);
+        for (PurchasedItem item : purchasedItems) {
+            mPurchasedItems.put(item.getProductId(), item);
+        }
+        notifyDataSetChanged();
+    }
+
     public void removeProduct(int position) {
         if (mCartDbHelper.removeProductFromCart(mProducts.get(position).getId()) > 0) {
+            mPurchasedItems.remove(mProducts.get(position).getId());
             mProducts.remove(position);
             notifyItemRemoved(position);
             notifyItemChanged(position); // retains item decoration
@@ -162,7 +226,6 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
         RelativeLayout volumeControls;
 
         private Product product;
-        private PurchasedItem cartItem;
 
         public ViewHolder(View itemView) {
             super(itemView);
@@ -182,18 +245,19 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
 
         @OnClick(R.id.item_product_volume_add_button)
         void onVolumeAdded() {
-            int newVolume = cartItem.getVolume() + product.getVolumeSet();
+            // index already has volume of taps whose rows are not rebound yet
+            int newVolume = mCartIndex.getCartItem(product.getId()).getVolume() + product.getVolumeSet();
             if (newVolume <= product.getMaximumVolume()) {
-                mCartDbHelper.updateVolume(product.getId(), newVolume);
+                mCartWriteBuffer.updateVolume(product, newVolume);
                 notifyItemChanged(getAdapterPosition());
             }
         }
 
         @OnClick(R.id.item_product_volume_subtract_button)
         void onVolumeSubtracted() {
-            int newVolume = cartItem.getVolume() - product.getVolumeSet();
+            int newVolume = mCartIndex.getCartItem(product.getId()).getVolume() - product.getVolumeSet();
             if (newVolume >= product.getMinimumVolume()) {
-                mCartDbHelper.updateVolume(product.getId(), newVolume);
+                mCartWriteBuffer.updateVolume(product, newVolume);
                 notifyItemChanged(getAdapterPosition());
             }
         }
@@ -207,7 +271,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
             analyticsData.putInt(Constants.ITEM_PRICE, product.getPrice());
             analyticsData.putInt(Constants.ITEM_VOLUME, product.getMinimumVolume());
 
-            if (mCartDbHelper.isProductAddedToCart(product.getId())) {
+            if (mCartIndex.isProductAddedToCart(product.getId())) {
                 mCartDbHelper.removeProductFromCart(product.getId());
                 checkBox.setChecked(false);
                 mFirebaseAnalytics.logEvent(Constants.EVENT_CART_ITEM_REMOVED, analyticsData);
@@ -220,9 +284,5 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
         public void setProduct(Product product) {
             this.product = product;
         }
-
-        public void setCartItem(PurchasedItem cartItem) {
-            this.cartItem = cartItem;
-        }
     }
 }
@@ -9,7 +9,7 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.support.v4.app.NotificationCompat;
 
-import com.greentopli.core.service.OrderHistoryService;
+import com.greentopli.core.service.SyncScheduler;
 import com.greentopli.core.storage.helper.CartDbHelper;
 
 import java.util.Calendar;
@@ -64,9 +64,9 @@ public class NotificationHelper {
 
         // something Goes wrong & Cart is not updated
         CartDbHelper helper = new CartDbHelper(mContext);
-        if (helper.getProductIdsFromCart(false).size() > 0) {
+        if (helper.getCartItemCount() > 0) {
             helper.clearCartItems();
-            OrderHistoryService.start(mContext);
+            SyncScheduler.getInstance(mContext).requestSync(SyncScheduler.Job.HISTORY, true);
         }
 
     }
@@ -11,7 +11,7 @@ import android.widget.TextView;
 
 import com.greentopli.core.presenter.history.OrderHistoryPresenter;
 import com.greentopli.core.presenter.history.OrderHistoryView;
-import com.greentopli.core.service.OrderHistoryService;
+import com.greentopli.core.service.SyncScheduler;
 import com.greentopli.model.OrderHistory;
 
 import java.util.List;
@@ -23,6 +23,8 @@ import io.github.karadkar.veggie.user.adapter.OrderHistoryAdapter;
 import io.github.karadkar.veggie.user.tool.ProductItemDecoration;
 
 public class OrderHistoryActivity extends AppCompatActivity implements OrderHistoryView, SwipeRefreshLayout.OnRefreshListener {
+    // remaining items to trigger next page
+    private static final int LOAD_MORE_THRESHOLD = 5;
     @BindView(R.id.orderHistory_recyclerView)
     RecyclerView mRecyclerView;
     @BindView(R.id.orderHistory_empty_message)
@@ -43,6 +45,16 @@ public class OrderHistoryActivity extends AppCompatActivity implements OrderHist
         mPresenter = OrderHistoryPresenter.bind(this, getApplicationContext());
         mRecyclerView.addItemDecoration(new ProductItemDecoration(getApplicationContext()));
         mSwipeRefreshLayout.setOnRefreshListener(this);
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || mLayoutManager == null)
+                    return;
+                int lastVisible = mLayoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= mAdapter.getItemCount() - LOAD_MORE_THRESHOLD)
+                    mPresenter.loadMoreOrderHistory();
+            }
+        });
     }
 
     private void initRecyclerView() {
@@ -59,6 +71,11 @@ public class OrderHistoryActivity extends AppCompatActivity implements OrderHist
         mSwipeRefreshLayout.setRefreshing(false);
     }
 
+    @Override
+    public void onMoreHistoryReceived(List<OrderHistory> orderHistoryList) {
+        mAdapter.addMoreData(orderHistoryList);
+    }
+
     @Override
     public void onEmpty(boolean show) {
         emptyMessage.setVisibility(show ? View.VISIBLE : View.GONE);
@@ -73,7 +90,7 @@ public class OrderHistoryActivity extends AppCompatActivity implements OrderHist
 
     @Override
     public void onRefresh() {
-        OrderHistoryService.start(getApplicationContext());
+        SyncScheduler.getInstance(getApplicationContext()).requestSync(SyncScheduler.Job.HISTORY, true);
     }
 
     @Override
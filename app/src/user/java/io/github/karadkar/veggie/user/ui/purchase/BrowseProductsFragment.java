@@ -35,7 +35,7 @@ import com.greentopli.CommonUtils;
 import com.greentopli.Constants;
 import com.greentopli.core.presenter.browse.BrowseProductsPresenter;
 import com.greentopli.core.presenter.browse.BrowseProductsView;
-import com.greentopli.core.service.ProductService;
+import com.greentopli.core.service.SyncScheduler;
 import com.greentopli.model.Product;
 
 import java.util.List;
@@ -55,6 +55,8 @@ public class BrowseProductsFragment extends Fragment implements BrowseProductsVi
     private static final String KEY_SCROLL_POSITION = "scroll_position";
     private static final String KEY_SEARCH_QUERY = "search_query";
     private static final String KEY_CATEGORY_POSITION = "category_position";
+    // remaining items to trigger next page
+    private static final int LOAD_MORE_THRESHOLD = 5;
     @BindView(R.id.browse_products_recyclerView)
     RecyclerView mRecyclerView;
     @BindView(R.id.default_progressbar)
@@ -130,6 +132,16 @@ public class BrowseProductsFragment extends Fragment implements BrowseProductsVi
         mAnalytics = FirebaseAnalytics.getInstance(getContext());
         mSwipeRefreshLayout.setOnRefreshListener(this);
         mRecyclerView.addItemDecoration(new ProductItemDecoration(getContext()));
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || mLayoutManager == null)
+                    return;
+                int lastVisible = ((LinearLayoutManager) mLayoutManager).findLastVisibleItemPosition();
+                if (lastVisible >= mAdapter.getItemCount() - LOAD_MORE_THRESHOLD)
+                    mPresenter.loadMoreProducts();
+            }
+        });
         return rootView;
     }
 
@@ -277,6 +289,11 @@ public class BrowseProductsFragment extends Fragment implements BrowseProductsVi
         mSwipeRefreshLayout.setRefreshing(false);
     }
 
+    @Override
+    public void showMoreProducts(List<Product> list) {
+        mAdapter.addMoreProducts(list);
+    }
+
     @OnClick(R.id.fab_browse_product_fragment)
     void onCheckoutBegin() {
         if (mAdapter.getCartItemCount() > 0) {
@@ -306,7 +323,7 @@ public class BrowseProductsFragment extends Fragment implements BrowseProductsVi
     // On Swipe Refresh layout
     @Override
     public void onRefresh() {
-        ProductService.start(getContext());
+        SyncScheduler.getInstance(getContext()).requestSync(SyncScheduler.Job.CATALOG, true);
     }
 
     // Search Query Handler
@@ -24,8 +24,8 @@ import com.google.firebase.crash.FirebaseCrash;
 import com.greentopli.Constants;
 import com.greentopli.core.presenter.checkout.CartCheckoutPresenter;
 import com.greentopli.core.presenter.checkout.CartView;
-import com.greentopli.core.service.OrderHistoryService;
 import com.greentopli.core.service.PurchasedItemObserver;
+import com.greentopli.core.service.SyncScheduler;
 import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
 import com.greentopli.model.Product;
 
@@ -58,6 +58,7 @@ public class CartCheckoutFragment extends Fragment implements CartView, Purchase
     private RecyclerView.LayoutManager mLayoutManager;
     private ProductAdapter mAdapter;
     private PurchasedItemObserver contentObserver;
+    private HandlerThread observerThread;
 
     public CartCheckoutFragment() {
         // Required empty public constructor
@@ -106,9 +107,9 @@ public class CartCheckoutFragment extends Fragment implements CartView, Purchase
         super.onResume();
         //http://stackoverflow.com/a/16617831/2804351
         // Create handler on Background Thread
-        HandlerThread thread = new HandlerThread(TAG);
-        thread.start();
-        Handler handler = new Handler(thread.getLooper());
+        observerThread = new HandlerThread(TAG);
+        observerThread.start();
+        Handler handler = new Handler(observerThread.getLooper());
 
         contentObserver = new PurchasedItemObserver(handler, getContext(), this);
         getContext().getContentResolver()
@@ -130,6 +131,7 @@ public class CartCheckoutFragment extends Fragment implements CartView, Purchase
         super.onPause();
         getContext().getContentResolver()
                 .unregisterContentObserver(contentObserver);
+        observerThread.quit();
 
         mPresenter.detachView();
     }
@@ -151,7 +153,7 @@ public class CartCheckoutFragment extends Fragment implements CartView, Purchase
     @Override
     public void onCartCheckoutSuccess(String user_id) {
         // update order history
-        OrderHistoryService.start(getContext());
+        SyncScheduler.getInstance(getContext()).requestSync(SyncScheduler.Job.HISTORY, true);
         Toast.makeText(getContext(), R.string.message_checkout_success, Toast.LENGTH_SHORT).show();
         // navigate to Main Screen
         goBack();
@@ -7,7 +7,7 @@ import android.support.v7.app.AppCompatActivity;
 import android.view.Menu;
 import android.view.MenuItem;
 
-import com.greentopli.core.service.OrderHistoryService;
+import com.greentopli.core.service.SyncScheduler;
 
 import io.github.karadkar.veggie.AuthenticatorActivity;
 import io.github.karadkar.veggie.R;
@@ -89,7 +89,7 @@ public class PurchaseManagerActivity extends AppCompatActivity implements OnFrag
                 signIn();
             } else if (requestCode == REQUEST_USER_DETAILS) {
                 // download User Order history in background
-                OrderHistoryService.start(mContext);
+                SyncScheduler.getInstance(mContext).requestSync(SyncScheduler.Job.HISTORY, true);
             }
         } else if (resultCode == RESULT_CANCELED) {
             // onBackPressed while SignIn
@@ -0,0 +1,100 @@
+package com.greentopli.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.greentopli.model.list.EntityList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsing catalog & order history responses, and writing order items, with reflective binding vs
+ * {@link ModelTypeAdapterFactory}.
+ * Allocation rate is reported by gc profiler, see build.gradle.
+ */
+
+@State(Scope.Benchmark)
+public class ModelParseBenchmark {
+	private static final Type PRODUCT_LIST = new TypeToken<EntityList<Product>>() {
+	}.getType();
+	private static final Type PURCHASED_ITEM_LIST = new TypeToken<EntityList<PurchasedItem>>() {
+	}.getType();
+
+	@Param({"100", "1000"})
+	public int size;
+
+	private Gson reflective;
+	private Gson adapters;
+	private String catalogJson;
+	private String historyJson;
+	private EntityList<PurchasedItem> history;
+
+	@Setup
+	public void setUp() {
+		reflective = new Gson();
+		adapters = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+
+		EntityList<Product> catalog = new EntityList<>();
+		List<Product> products = new ArrayList<>(size);
+		history = new EntityList<>();
+		List<PurchasedItem> items = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Product product = new Product("product " + i, "product " + i, Product.Type.LEAFY, Product.Volume.WEIGHT, 40);
+			product.setMinimumVolume(250);
+			product.setMaximumVolume(5000);
+			product.setVolumeSet(250);
+			product.setImageUrl("https://example.com/" + i + ".png");
+			products.add(product);
+
+			PurchasedItem item = new PurchasedItem("user@example.com", product.getId());
+			item.setVolume(500);
+			item.setTotalPrice(80);
+			item.setAccepted(true);
+			item.setDateRequested(1478000000000L);
+			items.add(item);
+		}
+		catalog.setItems(products);
+		history.setItems(items);
+		catalogJson = reflective.toJson(catalog, PRODUCT_LIST);
+		historyJson = reflective.toJson(history, PURCHASED_ITEM_LIST);
+	}
+
+	@Benchmark
+	public Object catalogReflective() {
+		return reflective.fromJson(catalogJson, PRODUCT_LIST);
+	}
+
+	@Benchmark
+	public Object catalogAdapters() {
+		return adapters.fromJson(catalogJson, PRODUCT_LIST);
+	}
+
+	@Benchmark
+	public Object historyReflective() {
+		return reflective.fromJson(historyJson, PURCHASED_ITEM_LIST);
+	}
+
+	@Benchmark
+	public Object historyAdapters() {
+		return adapters.fromJson(historyJson, PURCHASED_ITEM_LIST);
+	}
+
+	// checkout request body
+	@Benchmark
+	public String historyWriteReflective() {
+		return reflective.toJson(history, PURCHASED_ITEM_LIST);
+	}
+
+	@Benchmark
+	public String historyWriteAdapters() {
+		return adapters.toJson(history, PURCHASED_ITEM_LIST);
+	}
+}
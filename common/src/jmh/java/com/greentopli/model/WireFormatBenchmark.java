@@ -0,0 +1,84 @@
+package com.greentopli.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.greentopli.model.list.EntityList;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoding a catalog from JSON vs {@link BinaryModelCodec}. Size of decoded body is reported as {@code bodyBytes}.
+ */
+
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+	private static final Type PRODUCT_LIST = new TypeToken<EntityList<Product>>() {
+	}.getType();
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Param({"100", "1000"})
+	public int size;
+
+	private Gson gson;
+	private byte[] json;
+	private byte[] binary;
+
+	@Setup
+	public void setUp() throws IOException {
+		gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		String[] names = {"tomato", "onion", "potato", "spinach", "coriander", "banana", "mango", "lemon"};
+		List<Product> products = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			String name = names[i % names.length] + " " + i;
+			Product product = new Product(name, name, Product.Type.values()[1 + i % 2],
+					i % 4 == 0 ? Product.Volume.QUANTITY : Product.Volume.WEIGHT, 20 + i % 80);
+			product.setMinimumVolume(250);
+			product.setMaximumVolume(5000);
+			product.setVolumeSet(250);
+			product.setImageUrl("https://storage.googleapis.com/green-topli.appspot.com/products/"
+					+ name.replace(' ', '_') + ".jpg");
+			products.add(product);
+		}
+		EntityList<Product> catalog = new EntityList<>();
+		catalog.setItems(products);
+		json = gson.toJson(catalog, PRODUCT_LIST).getBytes(UTF_8);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryModelCodec.writeProducts(products, out);
+		binary = out.toByteArray();
+	}
+
+	@Benchmark
+	public Object decodeJson(Body body) {
+		body.bodyBytes = json.length;
+		return gson.fromJson(new String(json, UTF_8), PRODUCT_LIST);
+	}
+
+	@Benchmark
+	public Object decodeBinary(Body body) throws IOException {
+		body.bodyBytes = binary.length;
+		return BinaryModelCodec.readProducts(new ByteArrayInputStream(binary));
+	}
+
+	/**
+	 * Listed next to score of each benchmark, as is rather than per second.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Body {
+		public long bodyBytes;
+	}
+}
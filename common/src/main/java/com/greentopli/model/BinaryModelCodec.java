@@ -0,0 +1,312 @@
+package com.greentopli.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of product & purchased item lists, alternative to JSON for catalog & history
+ * transfers. Layout:
+ * <pre>
+ * "GTB" version:byte kind:byte
+ * stringCount:varint (length:varint utf8-bytes)*
+ * recordCount:varint record*
+ * </pre>
+ * Every string of a response, including enum names & image url prefixes, is stored once in string table
+ * & referenced by its index. A record starts with a varint of flags telling which nullable fields are
+ * present (booleans are flags too), followed by present string references & numbers in field order.
+ * Numbers are zigzag varints.
+ */
+
+public class BinaryModelCodec {
+	public static final String MEDIA_TYPE = "application/x-greentopli-binary";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final byte[] MAGIC = {'G', 'T', 'B'};
+	private static final int VERSION = 1;
+	public static final int KIND_PRODUCTS = 1;
+	public static final int KIND_PURCHASED_ITEMS = 2;
+	// limits of counts & lengths read from stream, far above real responses
+	private static final int MAX_STRING_COUNT = 1 << 20;
+	private static final int MAX_STRING_LENGTH = 1 << 16;
+	private static final int MAX_RECORD_COUNT = 1 << 22;
+
+	// product flags
+	private static final int PRODUCT_ID = 1;
+	private static final int PRODUCT_NAME_ENGLISH = 1 << 1;
+	private static final int PRODUCT_NAME_HINGLISH = 1 << 2;
+	private static final int PRODUCT_IMAGE_URL = 1 << 3;
+	private static final int PRODUCT_TYPE = 1 << 4;
+	private static final int PRODUCT_VOLUME = 1 << 5;
+	// purchased item flags
+	private static final int ITEM_ORDER_ID = 1;
+	private static final int ITEM_USER_ID = 1 << 1;
+	private static final int ITEM_PRODUCT_ID = 1 << 2;
+	private static final int ITEM_ACCEPTED = 1 << 3;
+	private static final int ITEM_COMPLETED = 1 << 4;
+
+	private BinaryModelCodec() {
+	}
+
+	public static void writeProducts(List<Product> products, OutputStream out) throws IOException {
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		for (Product product : products) {
+			String imageUrl = product.getImageUrl();
+			// images share their location, only file name differs
+			int split = imageUrl != null ? imageUrl.lastIndexOf('/') + 1 : 0;
+			int flags = flag(product.getId() != null, PRODUCT_ID)
+					| flag(product.getNameEnglishValue() != null, PRODUCT_NAME_ENGLISH)
+					| flag(product.getName_hinglish() != null, PRODUCT_NAME_HINGLISH)
+					| flag(imageUrl != null, PRODUCT_IMAGE_URL)
+					| flag(product.getType() != null, PRODUCT_TYPE)
+					| flag(product.getVolume() != null, PRODUCT_VOLUME);
+			writeVarint(records, zigzag(flags));
+			writeString(records, strings, product.getId());
+			writeString(records, strings, product.getNameEnglishValue());
+			writeString(records, strings, product.getName_hinglish());
+			if (imageUrl != null) {
+				writeString(records, strings, imageUrl.substring(0, split));
+				writeString(records, strings, imageUrl.substring(split));
+			}
+			writeString(records, strings, product.getType() != null ? product.getType().name() : null);
+			writeString(records, strings, product.getVolume() != null ? product.getVolume().name() : null);
+			writeVarint(records, zigzag(product.getMinimumVolume()));
+			writeVarint(records, zigzag(product.getMaximumVolume()));
+			writeVarint(records, zigzag(product.getVolumeSet()));
+			writeVarint(records, zigzag(product.getPrice()));
+			writeVarint(records, zigzag(product.getTime()));
+		}
+		writeMessage(out, KIND_PRODUCTS, strings, products.size(), records);
+	}
+
+	public static void writePurchasedItems(List<PurchasedItem> items, OutputStream out) throws IOException {
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		for (PurchasedItem item : items) {
+			int flags = flag(item.getOrderId() != null, ITEM_ORDER_ID)
+					| flag(item.getUserId() != null, ITEM_USER_ID)
+					| flag(item.getProductId() != null, ITEM_PRODUCT_ID)
+					| flag(item.isAccepted(), ITEM_ACCEPTED)
+					| flag(item.isCompleted(), ITEM_COMPLETED);
+			writeVarint(records, zigzag(flags));
+			writeString(records, strings, item.getOrderId());
+			writeString(records, strings, item.getUserId());
+			writeString(records, strings, item.getProductId());
+			writeVarint(records, zigzag(item.getDateRequested()));
+			writeVarint(records, zigzag(item.getDateCompleted()));
+			writeVarint(records, zigzag(item.getVolume()));
+			writeVarint(records, zigzag(item.getTotalPrice()));
+		}
+		writeMessage(out, KIND_PURCHASED_ITEMS, strings, items.size(), records);
+	}
+
+	public static List<Product> readProducts(InputStream in) throws IOException {
+		RecordReader reader = new RecordReader(in, KIND_PRODUCTS);
+		// grown as records arrive, count of a truncated or hostile message can't allocate up front
+		List<Product> products = new ArrayList<>();
+		while (reader.hasNext()) {
+			products.add(reader.nextProduct());
+		}
+		return products;
+	}
+
+	public static List<PurchasedItem> readPurchasedItems(InputStream in) throws IOException {
+		RecordReader reader = new RecordReader(in, KIND_PURCHASED_ITEMS);
+		List<PurchasedItem> items = new ArrayList<>();
+		while (reader.hasNext()) {
+			items.add(reader.nextPurchasedItem());
+		}
+		return items;
+	}
+
+	/**
+	 * Reads records one at a time, only string table is held in memory. Counts & lengths outside of
+	 * sane limits fail with {@link IOException} before anything is allocated for them.
+	 */
+	public static class RecordReader {
+		private final DataInputStream mIn;
+		private final String[] mStrings;
+		private final int mRecordCount;
+		private int mRead;
+
+		/**
+		 * @param kind {@link #KIND_PRODUCTS} or {@link #KIND_PURCHASED_ITEMS}
+		 */
+		public RecordReader(InputStream in, int kind) throws IOException {
+			mIn = new DataInputStream(in);
+			for (byte b : MAGIC) {
+				if (mIn.readByte() != b)
+					throw new IOException("Not a binary model message");
+			}
+			int version = mIn.readUnsignedByte();
+			if (version != VERSION)
+				throw new IOException("Unsupported version " + version);
+			int actualKind = mIn.readUnsignedByte();
+			if (actualKind != kind)
+				throw new IOException("Expected records of kind " + kind + " but got " + actualKind);
+			int stringCount = readCount("string count", MAX_STRING_COUNT);
+			List<String> strings = new ArrayList<>();
+			for (int i = 0; i < stringCount; i++) {
+				byte[] bytes = new byte[readCount("string length", MAX_STRING_LENGTH)];
+				mIn.readFully(bytes);
+				strings.add(new String(bytes, UTF_8));
+			}
+			mStrings = strings.toArray(new String[strings.size()]);
+			mRecordCount = readCount("record count", MAX_RECORD_COUNT);
+		}
+
+		public int getRecordCount() {
+			return mRecordCount;
+		}
+
+		public boolean hasNext() {
+			return mRead < mRecordCount;
+		}
+
+		public Product nextProduct() throws IOException {
+			mRead++;
+			int flags = readInt();
+			Product product = new Product();
+			if ((flags & PRODUCT_ID) != 0)
+				product.setId(readString());
+			if ((flags & PRODUCT_NAME_ENGLISH) != 0)
+				product.setName_english(readString());
+			if ((flags & PRODUCT_NAME_HINGLISH) != 0)
+				product.setName_hinglish(readString());
+			if ((flags & PRODUCT_IMAGE_URL) != 0)
+				product.setImageUrl(readString().concat(readString()));
+			if ((flags & PRODUCT_TYPE) != 0)
+				product.setType(valueOf(Product.Type.class, readString()));
+			if ((flags & PRODUCT_VOLUME) != 0)
+				product.setVolume(valueOf(Product.Volume.class, readString()));
+			product.setMinimumVolume(readInt());
+			product.setMaximumVolume(readInt());
+			product.setVolumeSet(readInt());
+			product.setPrice(readInt());
+			product.setTime(readLong());
+			return product;
+		}
+
+		public PurchasedItem nextPurchasedItem() throws IOException {
+			mRead++;
+			int flags = readInt();
+			PurchasedItem item = new PurchasedItem();
+			if ((flags & ITEM_ORDER_ID) != 0)
+				item.setOrderId(readString());
+			if ((flags & ITEM_USER_ID) != 0)
+				item.setUserId(readString());
+			if ((flags & ITEM_PRODUCT_ID) != 0)
+				item.setProductId(readString());
+			item.setAccepted((flags & ITEM_ACCEPTED) != 0);
+			item.setCompleted((flags & ITEM_COMPLETED) != 0);
+			item.setDateRequested(readLong());
+			item.setDateCompleted(readLong());
+			item.setVolume(readInt());
+			item.setTotalPrice(readInt());
+			return item;
+		}
+
+		private String readString() throws IOException {
+			int index = readInt();
+			if (index < 0 || index >= mStrings.length)
+				throw new IOException("String index out of range " + index);
+			return mStrings[index];
+		}
+
+		private int readCount(String name, int max) throws IOException {
+			long count = readLong();
+			if (count < 0 || count > max)
+				throw new IOException("Invalid " + name + " " + count);
+			return (int) count;
+		}
+
+		private int readInt() throws IOException {
+			return (int) readLong();
+		}
+
+		private long readLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = mIn.read();
+				if (b < 0)
+					throw new EOFException();
+				value |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0)
+					return (value >>> 1) ^ -(value & 1);
+			}
+			throw new IOException("Malformed varint");
+		}
+	}
+
+	/**
+	 * @return constant of given name, null for names unknown to this version like JSON binding does
+	 */
+	private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+		try {
+			return Enum.valueOf(type, name);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static void writeMessage(OutputStream out, int kind, StringTable strings, int recordCount,
+	                                 ByteArrayOutputStream records) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		header.write(MAGIC);
+		header.write(VERSION);
+		header.write(kind);
+		writeVarint(header, zigzag(strings.mValues.size()));
+		for (String value : strings.mValues) {
+			byte[] bytes = value.getBytes(UTF_8);
+			writeVarint(header, zigzag(bytes.length));
+			header.write(bytes);
+		}
+		writeVarint(header, zigzag(recordCount));
+		header.writeTo(out);
+		records.writeTo(out);
+	}
+
+	private static void writeString(OutputStream out, StringTable strings, String value) throws IOException {
+		if (value != null)
+			writeVarint(out, zigzag(strings.indexOf(value)));
+	}
+
+	private static int flag(boolean set, int flag) {
+		return set ? flag : 0;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void writeVarint(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static class StringTable {
+		private final Map<String, Integer> mIndexes = new HashMap<>();
+		private final List<String> mValues = new ArrayList<>();
+
+		int indexOf(String value) {
+			Integer index = mIndexes.get(value);
+			if (index == null) {
+				index = mValues.size();
+				mIndexes.put(value, index);
+				mValues.add(value);
+			}
+			return index;
+		}
+	}
+}
@@ -0,0 +1,586 @@
+package com.greentopli.model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.greentopli.model.list.EntityList;
+import com.greentopli.model.list.ProductList;
+import com.greentopli.model.list.ProductUpdates;
+import com.greentopli.model.list.UserOrders;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gson adapters of model classes written by hand, so parsing needs no reflection. Produces & accepts
+ * same JSON as Gson's reflective binding: fields by their names, nulls left out, unknown names
+ * skipped & unknown enum constants read as null. Fields added to models must be added here too.
+ * <pre>
+ * new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+ * </pre>
+ */
+
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Class<? super T> rawType = type.getRawType();
+		if (rawType == Product.class)
+			return (TypeAdapter<T>) new ProductAdapter().nullSafe();
+		if (rawType == PurchasedItem.class)
+			return (TypeAdapter<T>) new PurchasedItemAdapter().nullSafe();
+		if (rawType == User.class)
+			return (TypeAdapter<T>) new UserAdapter().nullSafe();
+		if (rawType == BackendResult.class)
+			return (TypeAdapter<T>) new BackendResultAdapter().nullSafe();
+		if (rawType == DataMessage.class)
+			return (TypeAdapter<T>) new DataMessageAdapter().nullSafe();
+		if (rawType == OrderHistory.class)
+			return (TypeAdapter<T>) new OrderHistoryAdapter().nullSafe();
+		if (rawType == ProductList.class)
+			return (TypeAdapter<T>) new ProductListAdapter().nullSafe();
+		if (rawType == ProductUpdates.class)
+			return (TypeAdapter<T>) new ProductUpdatesAdapter().nullSafe();
+		if (rawType == UserOrders.class)
+			return (TypeAdapter<T>) new UserOrdersAdapter().nullSafe();
+		if (rawType == EntityList.class)
+			return (TypeAdapter<T>) createEntityListAdapter(gson, type.getType()).nullSafe();
+		return null;
+	}
+
+	private static TypeAdapter<EntityList<Object>> createEntityListAdapter(Gson gson, Type type) {
+		Type itemType = type instanceof ParameterizedType ?
+				((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+		@SuppressWarnings("unchecked")
+		TypeAdapter<Object> itemAdapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(itemType));
+		return new EntityListAdapter<>(itemAdapter);
+	}
+
+	private static final Map<String, Product.Type> PRODUCT_TYPES = new HashMap<>();
+	private static final Map<String, Product.Volume> PRODUCT_VOLUMES = new HashMap<>();
+
+	static {
+		for (Product.Type type : Product.Type.values()) {
+			PRODUCT_TYPES.put(type.name(), type);
+		}
+		for (Product.Volume volume : Product.Volume.values()) {
+			PRODUCT_VOLUMES.put(volume.name(), volume);
+		}
+	}
+
+	static class ProductAdapter extends TypeAdapter<Product> {
+		@Override
+		public void write(JsonWriter out, Product value) throws IOException {
+			out.beginObject();
+			writeString(out, "id", value.getId());
+			writeString(out, "name_english", value.getNameEnglishValue());
+			writeString(out, "name_hinglish", value.getName_hinglish());
+			out.name("minimumVolume").value(value.getMinimumVolume());
+			out.name("maximumVolume").value(value.getMaximumVolume());
+			out.name("volumeSet").value(value.getVolumeSet());
+			writeString(out, "imageUrl", value.getImageUrl());
+			out.name("price").value(value.getPrice());
+			out.name("time").value(value.getTime());
+			writeString(out, "type", value.getType() != null ? value.getType().name() : null);
+			writeString(out, "volume", value.getVolume() != null ? value.getVolume().name() : null);
+			out.endObject();
+		}
+
+		@Override
+		public Product read(JsonReader in) throws IOException {
+			Product product = new Product();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "id":
+						product.setId(in.nextString());
+						break;
+					case "name_english":
+						product.setName_english(in.nextString());
+						break;
+					case "name_hinglish":
+						product.setName_hinglish(in.nextString());
+						break;
+					case "minimumVolume":
+						product.setMinimumVolume(in.nextInt());
+						break;
+					case "maximumVolume":
+						product.setMaximumVolume(in.nextInt());
+						break;
+					case "volumeSet":
+						product.setVolumeSet(in.nextInt());
+						break;
+					case "imageUrl":
+						product.setImageUrl(in.nextString());
+						break;
+					case "price":
+						product.setPrice(in.nextInt());
+						break;
+					case "time":
+						product.setTime(in.nextLong());
+						break;
+					case "type":
+						product.setType(PRODUCT_TYPES.get(in.nextString()));
+						break;
+					case "volume":
+						product.setVolume(PRODUCT_VOLUMES.get(in.nextString()));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return product;
+		}
+	}
+
+	static class PurchasedItemAdapter extends TypeAdapter<PurchasedItem> {
+		@Override
+		public void write(JsonWriter out, PurchasedItem value) throws IOException {
+			out.beginObject();
+			writeString(out, "orderId", value.getOrderId());
+			writeString(out, "userId", value.getUserId());
+			writeString(out, "productId", value.getProductId());
+			out.name("dateRequested").value(value.getDateRequested());
+			out.name("dateCompleted").value(value.getDateCompleted());
+			out.name("accepted").value(value.isAccepted());
+			out.name("completed").value(value.isCompleted());
+			out.name("volume").value(value.getVolume());
+			out.name("totalPrice").value(value.getTotalPrice());
+			out.endObject();
+		}
+
+		@Override
+		public PurchasedItem read(JsonReader in) throws IOException {
+			PurchasedItem item = new PurchasedItem();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "orderId":
+						item.setOrderId(in.nextString());
+						break;
+					case "userId":
+						item.setUserId(in.nextString());
+						break;
+					case "productId":
+						item.setProductId(in.nextString());
+						break;
+					case "dateRequested":
+						item.setDateRequested(in.nextLong());
+						break;
+					case "dateCompleted":
+						item.setDateCompleted(in.nextLong());
+						break;
+					case "accepted":
+						item.setAccepted(nextBoolean(in));
+						break;
+					case "completed":
+						item.setCompleted(nextBoolean(in));
+						break;
+					case "volume":
+						item.setVolume(in.nextInt());
+						break;
+					case "totalPrice":
+						item.setTotalPrice(in.nextInt());
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return item;
+		}
+	}
+
+	static class UserAdapter extends TypeAdapter<User> {
+		@Override
+		public void write(JsonWriter out, User value) throws IOException {
+			out.beginObject();
+			writeString(out, "email", value.getEmail());
+			writeString(out, "name", value.getName());
+			out.name("mobileNo").value(value.getMobileNo());
+			writeString(out, "address", value.getAddress());
+			out.name("pincode").value(value.getPincode());
+			writeString(out, "instanceId", value.getInstanceId());
+			writeString(out, "authToken", value.getAuthToken());
+			writeString(out, "photoUrl", value.getPhotoUrl());
+			out.endObject();
+		}
+
+		@Override
+		public User read(JsonReader in) throws IOException {
+			User user = new User();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "email":
+						user.setEmail(in.nextString());
+						break;
+					case "name":
+						user.setName(in.nextString());
+						break;
+					case "mobileNo":
+						user.setMobileNo(in.nextLong());
+						break;
+					case "address":
+						user.setAddress(in.nextString());
+						break;
+					case "pincode":
+						user.setPincode(in.nextInt());
+						break;
+					case "instanceId":
+						user.setInstanceId(in.nextString());
+						break;
+					case "authToken":
+						user.setAuthToken(in.nextString());
+						break;
+					case "photoUrl":
+						user.setPhotoUrl(in.nextString());
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return user;
+		}
+	}
+
+	static class BackendResultAdapter extends TypeAdapter<BackendResult> {
+		@Override
+		public void write(JsonWriter out, BackendResult value) throws IOException {
+			out.beginObject();
+			out.name("result").value(value.isResult());
+			writeString(out, "message", value.getMessage());
+			out.endObject();
+		}
+
+		@Override
+		public BackendResult read(JsonReader in) throws IOException {
+			BackendResult result = new BackendResult();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "result":
+						result.setResult(nextBoolean(in));
+						break;
+					case "message":
+						result.setMessage(in.nextString());
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return result;
+		}
+	}
+
+	static class DataMessageAdapter extends TypeAdapter<DataMessage> {
+		@Override
+		public void write(JsonWriter out, DataMessage value) throws IOException {
+			out.beginObject();
+			writeString(out, "title", value.getTitle());
+			writeString(out, "message", value.getMessage());
+			out.endObject();
+		}
+
+		@Override
+		public DataMessage read(JsonReader in) throws IOException {
+			DataMessage message = new DataMessage();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "title":
+						message.setTitle(in.nextString());
+						break;
+					case "message":
+						message.setMessage(in.nextString());
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return message;
+		}
+	}
+
+	static class OrderHistoryAdapter extends TypeAdapter<OrderHistory> {
+		private final ProductAdapter mProductAdapter = new ProductAdapter();
+		private final PurchasedItemAdapter mPurchasedItemAdapter = new PurchasedItemAdapter();
+
+		@Override
+		public void write(JsonWriter out, OrderHistory value) throws IOException {
+			out.beginObject();
+			writeString(out, "userId", value.getUserId());
+			out.name("orderDate").value(value.getOrderDate());
+			out.name("totalPrice").value(value.getTotalPrice());
+			out.name("totalItems").value(value.getTotalItems());
+			writeList(out, "products", value.getProducts(), mProductAdapter);
+			writeList(out, "purchasedItems", value.getPurchasedItems(), mPurchasedItemAdapter);
+			out.endObject();
+		}
+
+		@Override
+		public OrderHistory read(JsonReader in) throws IOException {
+			// identity is needed by constructor, remaining values are set afterwards
+			String userId = null;
+			long orderDate = 0;
+			int totalPrice = 0, totalItems = 0;
+			List<Product> products = null;
+			List<PurchasedItem> purchasedItems = null;
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "userId":
+						userId = in.nextString();
+						break;
+					case "orderDate":
+						orderDate = in.nextLong();
+						break;
+					case "totalPrice":
+						totalPrice = in.nextInt();
+						break;
+					case "totalItems":
+						totalItems = in.nextInt();
+						break;
+					case "products":
+						products = readList(in, mProductAdapter);
+						break;
+					case "purchasedItems":
+						purchasedItems = readList(in, mPurchasedItemAdapter);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			OrderHistory history = new OrderHistory(userId, orderDate);
+			history.setTotalPrice(totalPrice);
+			history.setTotalItems(totalItems);
+			if (products != null)
+				history.setProducts(products);
+			if (purchasedItems != null)
+				history.setPurchasedItems(purchasedItems);
+			return history;
+		}
+	}
+
+	static class ProductListAdapter extends TypeAdapter<ProductList> {
+		private final ProductAdapter mProductAdapter = new ProductAdapter();
+
+		@Override
+		public void write(JsonWriter out, ProductList value) throws IOException {
+			out.beginObject();
+			writeList(out, "items", value.getItems(), mProductAdapter);
+			out.endObject();
+		}
+
+		@Override
+		public ProductList read(JsonReader in) throws IOException {
+			ProductList list = new ProductList();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (name.equals("items") && in.peek() != JsonToken.NULL)
+					list.setItems(readList(in, mProductAdapter));
+				else
+					in.skipValue();
+			}
+			in.endObject();
+			return list;
+		}
+	}
+
+	static class ProductUpdatesAdapter extends TypeAdapter<ProductUpdates> {
+		private final ProductAdapter mProductAdapter = new ProductAdapter();
+
+		@Override
+		public void write(JsonWriter out, ProductUpdates value) throws IOException {
+			out.beginObject();
+			writeList(out, "items", value.getItems(), mProductAdapter);
+			if (value.getDeletedIds() != null) {
+				out.name("deletedIds").beginArray();
+				for (String id : value.getDeletedIds()) {
+					out.value(id);
+				}
+				out.endArray();
+			}
+			out.endObject();
+		}
+
+		@Override
+		public ProductUpdates read(JsonReader in) throws IOException {
+			ProductUpdates updates = new ProductUpdates();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "items":
+						updates.setItems(readList(in, mProductAdapter));
+						break;
+					case "deletedIds":
+						List<String> ids = new ArrayList<>();
+						in.beginArray();
+						while (in.hasNext()) {
+							if (in.peek() == JsonToken.NULL) {
+								in.nextNull();
+								ids.add(null);
+							} else
+								ids.add(in.nextString());
+						}
+						in.endArray();
+						updates.setDeletedIds(ids);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return updates;
+		}
+	}
+
+	static class UserOrdersAdapter extends TypeAdapter<UserOrders> {
+		private final PurchasedItemAdapter mPurchasedItemAdapter = new PurchasedItemAdapter();
+
+		@Override
+		public void write(JsonWriter out, UserOrders value) throws IOException {
+			out.beginObject();
+			writeList(out, "items", value.getItems(), mPurchasedItemAdapter);
+			out.endObject();
+		}
+
+		@Override
+		public UserOrders read(JsonReader in) throws IOException {
+			UserOrders orders = new UserOrders();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (name.equals("items") && in.peek() != JsonToken.NULL)
+					orders.setItems(readList(in, mPurchasedItemAdapter));
+				else
+					in.skipValue();
+			}
+			in.endObject();
+			return orders;
+		}
+	}
+
+	static class EntityListAdapter<T> extends TypeAdapter<EntityList<T>> {
+		private final TypeAdapter<T> mItemAdapter;
+
+		EntityListAdapter(TypeAdapter<T> itemAdapter) {
+			mItemAdapter = itemAdapter;
+		}
+
+		@Override
+		public void write(JsonWriter out, EntityList<T> value) throws IOException {
+			out.beginObject();
+			writeList(out, "items", value.getItems(), mItemAdapter);
+			out.endObject();
+		}
+
+		@Override
+		public EntityList<T> read(JsonReader in) throws IOException {
+			EntityList<T> list = new EntityList<>();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (name.equals("items") && in.peek() != JsonToken.NULL)
+					list.setItems(readList(in, mItemAdapter));
+				else
+					in.skipValue();
+			}
+			in.endObject();
+			return list;
+		}
+	}
+
+	private static void writeString(JsonWriter out, String name, String value) throws IOException {
+		if (value != null)
+			out.name(name).value(value);
+	}
+
+	private static <T> void writeList(JsonWriter out, String name, List<T> values, TypeAdapter<T> adapter)
+			throws IOException {
+		if (values == null)
+			return;
+		out.name(name).beginArray();
+		for (T value : values) {
+			if (value == null)
+				out.nullValue();
+			else
+				adapter.write(out, value);
+		}
+		out.endArray();
+	}
+
+	private static <T> List<T> readList(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+		List<T> values = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext()) {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				values.add(null);
+			} else
+				values.add(adapter.read(in));
+		}
+		in.endArray();
+		return values;
+	}
+
+	/**
+	 * Gson's reflective binding accepts booleans written as strings too
+	 */
+	private static boolean nextBoolean(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.STRING)
+			return Boolean.parseBoolean(in.nextString());
+		return in.nextBoolean();
+	}
+}
@@ -13,6 +13,8 @@ public class OrderHistory {
 	private int totalPrice;
 	private int totalItems;
 	private List<Product> products;
+	// line of each product, in same order as products
+	private List<PurchasedItem> purchasedItems;
 
 	public OrderHistory(String userId, long orderDate) {
 		this.userId = userId;
@@ -20,6 +22,7 @@ public class OrderHistory {
 		this.totalItems = 0;
 		this.totalPrice = 0;
 		this.products = new ArrayList<>();
+		this.purchasedItems = new ArrayList<>();
 	}
 
 	public boolean isEmpty() {
@@ -57,4 +60,12 @@ public class OrderHistory {
 	public void setProducts(List<Product> products) {
 		this.products = products;
 	}
+
+	public List<PurchasedItem> getPurchasedItems() {
+		return purchasedItems;
+	}
+
+	public void setPurchasedItems(List<PurchasedItem> purchasedItems) {
+		this.purchasedItems = purchasedItems;
+	}
 }
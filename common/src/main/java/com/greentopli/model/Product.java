@@ -137,6 +137,13 @@ public class Product {
 				.concat(name_english.substring(1).toLowerCase()));
 	}
 
+	/**
+	 * name as stored, for serialization
+	 */
+	String getNameEnglishValue() {
+		return name_english;
+	}
+
 	public String getName_hinglish() {
 		return name_hinglish;
 	}
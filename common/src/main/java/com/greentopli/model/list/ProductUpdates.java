@@ -0,0 +1,39 @@
+package com.greentopli.model.list;
+
+import com.greentopli.model.Product;
+
+import java.util.List;
+
+/**
+ * Products changed after given time, used for incremental catalog sync.
+ */
+
+public class ProductUpdates {
+	// added or modified products
+	private List<Product> items;
+	// ids of products removed from catalog
+	private List<String> deletedIds;
+
+	public ProductUpdates() {
+	}
+
+	public List<Product> getItems() {
+		return items;
+	}
+
+	public void setItems(List<Product> items) {
+		this.items = items;
+	}
+
+	public List<String> getDeletedIds() {
+		return deletedIds;
+	}
+
+	public void setDeletedIds(List<String> deletedIds) {
+		this.deletedIds = deletedIds;
+	}
+
+	public boolean isEmpty() {
+		return (items == null || items.isEmpty()) && (deletedIds == null || deletedIds.isEmpty());
+	}
+}
@@ -3,7 +3,8 @@ package com.greentopli.core;
 import android.app.Application;
 
 import com.facebook.stetho.Stetho;
-import com.greentopli.core.service.ProductService;
+import com.greentopli.core.remote.ServiceGenerator;
+import com.greentopli.core.service.SyncScheduler;
 
 /**
  * Created by rnztx on 21/10/16.
@@ -14,7 +15,8 @@ public class AppClass extends Application {
 	public void onCreate() {
 		super.onCreate();
 		Stetho.initializeWithDefaults(this);
-		// prepare Product list
-		ProductService.start(getApplicationContext());
+		ServiceGenerator.initialize(this, ServiceGenerator.DEFAULT_CACHE_SIZE);
+		// prepare Product list once first screen is drawn
+		SyncScheduler.getInstance(this).requestSync(SyncScheduler.Job.CATALOG, false);
 	}
 }
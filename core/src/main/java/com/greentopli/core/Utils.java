@@ -1,8 +1,5 @@
 package com.greentopli.core;
 
-import android.app.ActivityManager;
-import android.content.Context;
-
 import java.util.Calendar;
 
 /**
@@ -30,15 +27,4 @@ public class Utils {
 		double result = Double.valueOf(requiredVolume) * (Double.valueOf(priceForMinVolume) / Double.valueOf(minVolume));
 		return (int) Math.ceil(result); // Rs. 16.45 becomes 17
 	}
-
-	public static boolean isMyServiceRunning(Class<?> serviceClass, Context context) {
-		// http://stackoverflow.com/a/5921190/2804351
-		ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
-		for (ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-			if (serviceClass.getName().equals(service.service.getClassName())) {
-				return true;
-			}
-		}
-		return false;
-	}
 }
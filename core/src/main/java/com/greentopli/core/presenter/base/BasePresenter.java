@@ -2,6 +2,12 @@ package com.greentopli.core.presenter.base;
 
 import android.content.Context;
 
+import com.greentopli.core.storage.DbTask;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
 /**
  * Created by rnztx on 8/10/16.
  */
@@ -9,6 +15,8 @@ import android.content.Context;
 public class BasePresenter<T extends MvpView> implements Presenter<T> {
 	private T mMvpView;
 	private Context context;
+	// latest background task of each kind
+	private final Map<String, DbTask<?>> mTasks = new HashMap<>();
 
 	@Override
 	public void attachView(T mvpView, Context context) {
@@ -18,6 +26,10 @@ public class BasePresenter<T extends MvpView> implements Presenter<T> {
 
 	@Override
 	public void detachView() {
+		for (DbTask<?> task : mTasks.values()) {
+			task.cancel();
+		}
+		mTasks.clear();
 		this.mMvpView = null;
 		this.context = null;
 	}
@@ -33,4 +45,34 @@ public class BasePresenter<T extends MvpView> implements Presenter<T> {
 	public Context getContext() {
 		return context;
 	}
+
+	/**
+	 * Runs {@code work} off main thread, result is delivered on main thread while view is attached.
+	 * On failure progress bar of view is hidden before {@link DbTask.Callback#onError(Exception)}.
+	 * Pending task with same {@code tag} is superseded & its result dropped, eg. older search query.
+	 */
+	protected <R> void runInBackground(final String tag, Callable<R> work, final DbTask.Callback<R> callback) {
+		DbTask<?> previous = mTasks.remove(tag);
+		if (previous != null)
+			previous.cancel();
+		DbTask<R> task = DbTask.execute(work, new DbTask.Callback<R>() {
+			@Override
+			public void onResult(R result) {
+				// delivered results are never superseded, newer task would have cancelled this one
+				mTasks.remove(tag);
+				if (isViewAttached())
+					callback.onResult(result);
+			}
+
+			@Override
+			public void onError(Exception e) {
+				mTasks.remove(tag);
+				if (!isViewAttached())
+					return;
+				getmMvpView().showProgressbar(false);
+				callback.onError(e);
+			}
+		});
+		mTasks.put(tag, task);
+	}
 }
@@ -7,11 +7,15 @@ import android.content.IntentFilter;
 
 import com.greentopli.core.presenter.base.BasePresenter;
 import com.greentopli.core.service.ProductService;
+import com.greentopli.core.service.SyncScheduler;
+import com.greentopli.core.storage.DbTask;
 import com.greentopli.core.storage.helper.ProductDbHelper;
 import com.greentopli.model.Product;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
 
 /**
  * Created by rnztx on 13/10/16.
@@ -19,15 +23,24 @@ import java.util.Locale;
 
 public class BrowseProductsPresenter extends BasePresenter<BrowseProductsView> {
 	private static final String TAG = BrowseProductsPresenter.class.getSimpleName();
+	private static final int PAGE_SIZE = 30;
+	// catalog, search & sort results replace each other
+	private static final String TASK_PRODUCTS = "products";
 	private ProductDbHelper dbHandler;
 	private IntentFilter mIntentFilter;
-	private List<Product> mProducts;
+	// first page of whole catalog
+	private List<Product> mProducts = new ArrayList<>();
+	// state of list being shown, search results are not paged
+	private Product.Type mProductType = Product.Type.ALL;
+	private Product mLastProduct;
+	private boolean mHasMoreProducts;
 
 	public BrowseProductsPresenter() {
 		mIntentFilter = new IntentFilter();
 		mIntentFilter.addAction(ProductService.ACTION_SUCCESS);
 		mIntentFilter.addAction(ProductService.ACTION_ERROR);
 		mIntentFilter.addAction(ProductService.ACTION_EMPTY);
+		mIntentFilter.addAction(ProductService.ACTION_NOT_MODIFIED);
 	}
 
 	// receive ProductService Broadcast
@@ -40,13 +53,14 @@ public class BrowseProductsPresenter extends BasePresenter<BrowseProductsView> {
 					getmMvpView().showEmpty(mProducts.size() == 0);
 					break;
 				case ProductService.ACTION_SUCCESS:
-					mProducts = dbHandler.getProducts();
-					if (mProducts.size() > 0)
-						getmMvpView().showProducts(mProducts);
+					loadCatalog(false);
 					break;
 				case ProductService.ACTION_EMPTY:
 					getmMvpView().showEmpty(true);
 					break;
+				case ProductService.ACTION_NOT_MODIFIED:
+					// products shown are already up to date
+					break;
 			}
 			getmMvpView().showProgressbar(false);
 		}
@@ -64,38 +78,116 @@ public class BrowseProductsPresenter extends BasePresenter<BrowseProductsView> {
 		super.attachView(mvpView, context);
 		dbHandler = new ProductDbHelper(getContext());
 		getContext().registerReceiver(mBroadcastReceiver, mIntentFilter);
-		mProducts = dbHandler.getProducts();
 	}
 
 	public void getProductItems() {
 		//Sends Product list to View
-		if (mProducts.size() > 0) {
-			getmMvpView().showProducts(mProducts);
-			getmMvpView().showProgressbar(false);
-		} else {
-			getmMvpView().showProgressbar(true);
-			ProductService.start(getContext());
-		}
+		loadCatalog(true);
 	}
 
-	public void searchProduct(String query) {
+	/**
+	 * @param syncWhenEmpty request catalog sync when there are no products stored yet
+	 */
+	private void loadCatalog(final boolean syncWhenEmpty) {
+		mProductType = Product.Type.ALL;
+		mHasMoreProducts = false;
+		final ProductDbHelper helper = dbHandler;
+		runInBackground(TASK_PRODUCTS, new Callable<List<Product>>() {
+			@Override
+			public List<Product> call() throws Exception {
+				return helper.getProductPage(null, PAGE_SIZE);
+			}
+		}, new DbTask.Callback<List<Product>>() {
+			@Override
+			public void onResult(List<Product> page) {
+				mProducts = page;
+				if (mProducts.size() > 0) {
+					showFirstPage(mProducts);
+					getmMvpView().showProgressbar(false);
+				} else if (syncWhenEmpty) {
+					getmMvpView().showProgressbar(true);
+					SyncScheduler.getInstance(getContext()).requestSync(SyncScheduler.Job.CATALOG, true);
+				}
+			}
+		});
+	}
+
+	public void searchProduct(final String query) {
 		// search products & send them to View
-		if (mProducts.size() > 0) {
-			List<Product> queryResultList = dbHandler.getProducts(query);
-			if (queryResultList.size() > 0)
-				getmMvpView().showProducts(queryResultList);
-		}
+		mHasMoreProducts = false;
+		final ProductDbHelper helper = dbHandler;
+		runInBackground(TASK_PRODUCTS, new Callable<List<Product>>() {
+			@Override
+			public List<Product> call() throws Exception {
+				return helper.searchProducts(query);
+			}
+		}, new DbTask.Callback<List<Product>>() {
+			@Override
+			public void onResult(List<Product> queryResultList) {
+				if (queryResultList.size() > 0)
+					getmMvpView().showProducts(queryResultList);
+			}
+		});
 	}
 
 	public void sortProducts(String productTypeString) {
-		Product.Type productType = Product.Type.valueOf(productTypeString.toUpperCase(Locale.ENGLISH));
-		if (productType.equals(Product.Type.ALL))
+		final Product.Type productType = Product.Type.valueOf(productTypeString.toUpperCase(Locale.ENGLISH));
+		if (productType.equals(Product.Type.ALL)) {
 			getProductItems();
-		else if (mProducts.size() > 0) {
-			List<Product> queryResultList = dbHandler.getProducts(productType);
-			if (queryResultList.size() > 0)
-				getmMvpView().showProducts(queryResultList);
+			return;
 		}
+		mHasMoreProducts = false;
+		final ProductDbHelper helper = dbHandler;
+		runInBackground(TASK_PRODUCTS, new Callable<List<Product>>() {
+			@Override
+			public List<Product> call() throws Exception {
+				return helper.getProductPage(productType, null, PAGE_SIZE);
+			}
+		}, new DbTask.Callback<List<Product>>() {
+			@Override
+			public void onResult(List<Product> queryResultList) {
+				if (queryResultList.size() > 0) {
+					mProductType = productType;
+					showFirstPage(queryResultList);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sends next page of list being shown (whole catalog or sorted by type), if any
+	 */
+	public void loadMoreProducts() {
+		if (!isViewAttached() || !mHasMoreProducts)
+			return;
+		// until this page arrives
+		mHasMoreProducts = false;
+		final ProductDbHelper helper = dbHandler;
+		final Product.Type productType = mProductType;
+		final Product lastProduct = mLastProduct;
+		runInBackground(TASK_PRODUCTS, new Callable<List<Product>>() {
+			@Override
+			public List<Product> call() throws Exception {
+				return productType.equals(Product.Type.ALL) ?
+						helper.getProductPage(lastProduct, PAGE_SIZE) :
+						helper.getProductPage(productType, lastProduct, PAGE_SIZE);
+			}
+		}, new DbTask.Callback<List<Product>>() {
+			@Override
+			public void onResult(List<Product> page) {
+				mHasMoreProducts = page.size() == PAGE_SIZE;
+				if (page.size() > 0) {
+					mLastProduct = page.get(page.size() - 1);
+					getmMvpView().showMoreProducts(page);
+				}
+			}
+		});
+	}
+
+	private void showFirstPage(List<Product> page) {
+		mHasMoreProducts = page.size() == PAGE_SIZE;
+		mLastProduct = page.get(page.size() - 1);
+		getmMvpView().showProducts(page);
 	}
 
 	@Override
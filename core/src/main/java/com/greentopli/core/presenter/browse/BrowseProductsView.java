@@ -15,4 +15,9 @@ public interface BrowseProductsView extends MvpView {
 	void showError(String message);
 
 	void showProducts(List<Product> list);
+
+	/**
+	 * next page of products, to be appended after ones already shown
+	 */
+	void showMoreProducts(List<Product> list);
 }
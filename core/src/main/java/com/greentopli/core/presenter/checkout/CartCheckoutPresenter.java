@@ -5,13 +5,17 @@ import android.content.Context;
 import com.greentopli.core.presenter.base.BasePresenter;
 import com.greentopli.core.remote.BackendConnectionService;
 import com.greentopli.core.remote.ServiceGenerator;
+import com.greentopli.core.storage.DbTask;
 import com.greentopli.core.storage.helper.CartDbHelper;
+import com.greentopli.core.storage.helper.CartWriteBuffer;
 import com.greentopli.core.storage.helper.UserDbHelper;
 import com.greentopli.model.BackendResult;
 import com.greentopli.model.Product;
+import com.greentopli.model.PurchasedItem;
 import com.greentopli.model.list.UserOrders;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -22,10 +26,12 @@ import retrofit2.Response;
  */
 
 public class CartCheckoutPresenter extends BasePresenter<CartView> {
-
+	private static final String TASK_CART_ITEMS = "cart_items";
+	private static final String TASK_CHECKOUT = "checkout";
 	private Call<BackendResult> mCall;
 	private CartDbHelper dbHandler;
 	private UserDbHelper userDbHelper;
+	private CartWriteBuffer cartWriteBuffer;
 
 	public CartCheckoutPresenter() {
 	}
@@ -41,13 +47,37 @@ public class CartCheckoutPresenter extends BasePresenter<CartView> {
 		super.attachView(mvpView, context);
 		dbHandler = new CartDbHelper(context);
 		userDbHelper = new UserDbHelper(context);
-
+		cartWriteBuffer = CartWriteBuffer.getInstance(context);
 	}
 
 	public void checkOutOrders() {
 		getmMvpView().showProgressbar(true);
+		final CartDbHelper cartDbHelper = dbHandler;
+		final CartWriteBuffer writeBuffer = cartWriteBuffer;
+		runInBackground(TASK_CHECKOUT, new Callable<List<PurchasedItem>>() {
+			@Override
+			public List<PurchasedItem> call() throws Exception {
+				// volumes changed just before checkout must be ordered too
+				writeBuffer.flush();
+				return cartDbHelper.getPurchasedItemList(false);
+			}
+		}, new DbTask.Callback<List<PurchasedItem>>() {
+			@Override
+			public void onResult(List<PurchasedItem> purchasedItems) {
+				storePurchasedItems(purchasedItems);
+			}
+
+			@Override
+			public void onError(Exception e) {
+				super.onError(e);
+				getmMvpView().onCartCheckoutError(e.getMessage());
+			}
+		});
+	}
+
+	private void storePurchasedItems(List<PurchasedItem> purchasedItems) {
 		UserOrders cartItems = new UserOrders();
-		cartItems.setItems(dbHandler.getPurchasedItemList(false));
+		cartItems.setItems(purchasedItems);
 
 		BackendConnectionService service = ServiceGenerator.createService(BackendConnectionService.class);
 		mCall = service.storePurchasedItems(cartItems);
@@ -61,10 +91,7 @@ public class CartCheckoutPresenter extends BasePresenter<CartView> {
 				if (response.body() == null) {
 					getmMvpView().onCartCheckoutError("Null Pointer " + call.toString());
 				} else if (response.body().isResult()) {
-					dbHandler.clearCartItems();
-					getmMvpView().onCartCheckoutSuccess(
-							userDbHelper.getSignedUserInfo().getEmail()
-					);
+					onCheckoutStored();
 					return;
 				} else
 					getmMvpView().onCartCheckoutFailed(null);
@@ -83,8 +110,39 @@ public class CartCheckoutPresenter extends BasePresenter<CartView> {
 		});
 	}
 
+	private void onCheckoutStored() {
+		final CartDbHelper cartDbHelper = dbHandler;
+		final UserDbHelper signedUserDbHelper = userDbHelper;
+		// not bound to view, ordered items must leave the cart even if view goes away meanwhile
+		DbTask.execute(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				cartDbHelper.clearCartItems();
+				return signedUserDbHelper.getSignedUserInfo().getEmail();
+			}
+		}, new DbTask.Callback<String>() {
+			@Override
+			public void onResult(String userId) {
+				if (isViewAttached())
+					getmMvpView().onCartCheckoutSuccess(userId);
+			}
+
+			@Override
+			public void onError(Exception e) {
+				super.onError(e);
+				if (!isViewAttached())
+					return;
+				getmMvpView().onCartCheckoutError(e.getMessage());
+				getmMvpView().showProgressbar(false);
+			}
+		});
+	}
+
 	@Override
 	public void detachView() {
+		// written right away, process may be killed any time after cart screen is left
+		if (cartWriteBuffer.hasPendingChanges())
+			cartWriteBuffer.flushInBackground();
 		this.userDbHelper = null;
 		this.dbHandler = null;
 		if (mCall != null)
@@ -93,8 +151,19 @@ public class CartCheckoutPresenter extends BasePresenter<CartView> {
 	}
 
 	public void getProductsFromCart() {
-		List<Product> products = dbHandler.getProductsFromCart(false);
-		if (products.size() > 0)
-			getmMvpView().onCartItemsReceived(products);
+		final CartDbHelper cartDbHelper = dbHandler;
+		// volumes & prices of cart lines are read from CartIndex, which has changes not written yet
+		runInBackground(TASK_CART_ITEMS, new Callable<List<Product>>() {
+			@Override
+			public List<Product> call() throws Exception {
+				return cartDbHelper.getProductsFromCart(false);
+			}
+		}, new DbTask.Callback<List<Product>>() {
+			@Override
+			public void onResult(List<Product> products) {
+				if (products.size() > 0)
+					getmMvpView().onCartItemsReceived(products);
+			}
+		});
 	}
 }
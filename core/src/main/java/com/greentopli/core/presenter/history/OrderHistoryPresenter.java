@@ -7,26 +7,27 @@ import android.content.IntentFilter;
 
 import com.greentopli.core.presenter.base.BasePresenter;
 import com.greentopli.core.service.OrderHistoryService;
+import com.greentopli.core.storage.DbTask;
 import com.greentopli.core.storage.helper.CartDbHelper;
 import com.greentopli.core.storage.helper.UserDbHelper;
 import com.greentopli.model.OrderHistory;
-import com.greentopli.model.Product;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Created by rnztx on 28/10/16.
  */
 
 public class OrderHistoryPresenter extends BasePresenter<OrderHistoryView> {
+	private static final int PAGE_SIZE = 20;
+	private static final String TASK_ORDER_HISTORY = "order_history";
 	private CartDbHelper mCartDbHelper;
 	private IntentFilter mIntentFilter;
-	private String mUserId;
+	private UserDbHelper mUserDbHelper;
+	// request date of oldest order sent to view
+	private long mLastOrderDate;
+	private boolean mHasMoreOrders;
 
 	OrderHistoryPresenter() {
 		mIntentFilter = new IntentFilter();
@@ -65,7 +66,7 @@ public class OrderHistoryPresenter extends BasePresenter<OrderHistoryView> {
 	public void attachView(OrderHistoryView mvpView, Context context) {
 		super.attachView(mvpView, context);
 		mCartDbHelper = new CartDbHelper(context);
-		mUserId = new UserDbHelper(context).getSignedUserInfo().getEmail();
+		mUserDbHelper = new UserDbHelper(context);
 		getContext().registerReceiver(mBroadcastReceiver, mIntentFilter);
 		// send available data
 		requestOrderHistory();
@@ -79,42 +80,59 @@ public class OrderHistoryPresenter extends BasePresenter<OrderHistoryView> {
 
 	private void requestOrderHistory() {
 		getmMvpView().showProgressbar(true);
-		HashMap<Long, Integer> pair = mCartDbHelper.getOrderHistoryDates(mUserId);
-		if (pair.size() == 0) {
-			getmMvpView().onEmpty(true);
-			getmMvpView().showProgressbar(false);
+		mHasMoreOrders = false;
+		runInBackground(TASK_ORDER_HISTORY, new OrderHistoryQuery(0), new DbTask.Callback<List<OrderHistory>>() {
+			@Override
+			public void onResult(List<OrderHistory> orderHistoryList) {
+				mHasMoreOrders = orderHistoryList.size() > 0;
+				if (orderHistoryList.size() == 0) {
+					getmMvpView().onEmpty(true);
+				} else {
+					mLastOrderDate = orderHistoryList.get(orderHistoryList.size() - 1).getOrderDate();
+					getmMvpView().onHistoryReceived(orderHistoryList);
+					getmMvpView().onEmpty(false);
+				}
+				getmMvpView().showProgressbar(false);
+			}
+		});
+	}
+
+	/**
+	 * Sends next page of older orders, if any
+	 */
+	public void loadMoreOrderHistory() {
+		if (!isViewAttached() || !mHasMoreOrders)
 			return;
-		}
+		// until this page arrives
+		mHasMoreOrders = false;
+		runInBackground(TASK_ORDER_HISTORY, new OrderHistoryQuery(mLastOrderDate), new DbTask.Callback<List<OrderHistory>>() {
+			@Override
+			public void onResult(List<OrderHistory> orderHistoryList) {
+				if (orderHistoryList.isEmpty())
+					return;
+				mHasMoreOrders = true;
+				mLastOrderDate = orderHistoryList.get(orderHistoryList.size() - 1).getOrderDate();
+				getmMvpView().onMoreHistoryReceived(orderHistoryList);
+			}
+		});
+	}
 
-		List<OrderHistory> orderHistoryList = new ArrayList<>();
+	/**
+	 * Page of orders placed before given date, signed user is looked up along with it
+	 */
+	private class OrderHistoryQuery implements Callable<List<OrderHistory>> {
+		private final CartDbHelper cartDbHelper = mCartDbHelper;
+		private final UserDbHelper userDbHelper = mUserDbHelper;
+		private final long beforeDate;
 
-		for (long date : pair.keySet()) {
-			// create Obj
-			OrderHistory orderHistory = new OrderHistory(mUserId, date);
-			List<Product> products = mCartDbHelper.getProductsFromCart(true, date);
-			if (products.size() > 0) {
-				orderHistory.setProducts(products);
-				orderHistory.setTotalItems(products.size());
-				orderHistory.setTotalPrice(pair.get(date));
-				orderHistoryList.add(orderHistory);
-			}
+		OrderHistoryQuery(long beforeDate) {
+			this.beforeDate = beforeDate;
 		}
 
-		if (orderHistoryList.size() > 0) {
-			// sort by date
-			Collections.sort(orderHistoryList, new Comparator<OrderHistory>() {
-				@Override
-				public int compare(OrderHistory o1, OrderHistory o2) {
-					Date d1 = new Date(o1.getOrderDate());
-					Date d2 = new Date(o2.getOrderDate());
-					//return d1.compareTo(d2); // Ascending order
-					return d2.compareTo(d1); // Descending order
-				}
-			});
-
-			getmMvpView().onHistoryReceived(orderHistoryList);
-			getmMvpView().onEmpty(false);
+		@Override
+		public List<OrderHistory> call() throws Exception {
+			String userId = userDbHelper.getSignedUserInfo().getEmail();
+			return cartDbHelper.getOrderHistory(userId, beforeDate, PAGE_SIZE);
 		}
-		getmMvpView().showProgressbar(false);
 	}
 }
@@ -12,5 +12,10 @@ import java.util.List;
 public interface OrderHistoryView extends MvpView {
 	void onHistoryReceived(List<OrderHistory> orderHistoryList);
 
+	/**
+	 * older orders to be appended after the ones already received
+	 */
+	void onMoreHistoryReceived(List<OrderHistory> orderHistoryList);
+
 	void onEmpty(boolean show);
 }
@@ -6,10 +6,13 @@ import android.support.annotation.NonNull;
 import com.greentopli.core.presenter.base.BasePresenter;
 import com.greentopli.core.remote.BackendConnectionService;
 import com.greentopli.core.remote.ServiceGenerator;
+import com.greentopli.core.storage.DbTask;
 import com.greentopli.core.storage.helper.UserDbHelper;
 import com.greentopli.model.BackendResult;
 import com.greentopli.model.User;
 
+import java.util.concurrent.Callable;
+
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -19,6 +22,7 @@ import retrofit2.Response;
  */
 
 public class UserSignUpPresenter extends BasePresenter<SignUpView> {
+	private static final String TASK_SIGNED_USER = "signed_user";
 	private UserDbHelper userDbHelper;
 	private Call<BackendResult> signUpCall;
 
@@ -43,10 +47,8 @@ public class UserSignUpPresenter extends BasePresenter<SignUpView> {
 				// Stored on server
 				if (response.body() != null && response.body().isResult()) {
 					// now store locally
-					if (userDbHelper.storeUserInfo(user) <= 0)
-						getmMvpView().onSignUpError("Failed to store Locally");
-					else
-						getmMvpView().onSignUpSuccess();
+					storeUserInfo(user);
+					return;
 				} else { // Failed to store on server
 					getmMvpView().onSignUpError("Error uploading data");
 				}
@@ -62,14 +64,55 @@ public class UserSignUpPresenter extends BasePresenter<SignUpView> {
 		});
 	}
 
-	public void updateInstanceId(String instanceId) {
-		User user = userDbHelper.getSignedUserInfo();
-		if (user != null && !user.getInstanceId().equals(instanceId)) {
-			user.setInstanceId(instanceId);
-			// update on server
-			signUp(user);
-		} else {
-			getmMvpView().onSignUpError("Not Updating Instance Id");
-		}
+	private void storeUserInfo(final User user) {
+		final UserDbHelper helper = userDbHelper;
+		// not bound to view, user stored on server must be stored locally as well
+		DbTask.execute(new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				return helper.storeUserInfo(user);
+			}
+		}, new DbTask.Callback<Long>() {
+			@Override
+			public void onResult(Long id) {
+				if (!isViewAttached())
+					return;
+				if (id <= 0)
+					getmMvpView().onSignUpError("Failed to store Locally");
+				else
+					getmMvpView().onSignUpSuccess();
+				getmMvpView().showProgressbar(false);
+			}
+
+			@Override
+			public void onError(Exception e) {
+				super.onError(e);
+				if (!isViewAttached())
+					return;
+				getmMvpView().onSignUpError("Failed to store Locally");
+				getmMvpView().showProgressbar(false);
+			}
+		});
+	}
+
+	public void updateInstanceId(final String instanceId) {
+		final UserDbHelper helper = userDbHelper;
+		runInBackground(TASK_SIGNED_USER, new Callable<User>() {
+			@Override
+			public User call() throws Exception {
+				return helper.getSignedUserInfo();
+			}
+		}, new DbTask.Callback<User>() {
+			@Override
+			public void onResult(User user) {
+				if (user != null && !user.getInstanceId().equals(instanceId)) {
+					user.setInstanceId(instanceId);
+					// update on server
+					signUp(user);
+				} else {
+					getmMvpView().onSignUpError("Not Updating Instance Id");
+				}
+			}
+		});
 	}
 }
@@ -1,32 +1,62 @@
 package com.greentopli.core.remote;
 
 import com.greentopli.model.BackendResult;
+import com.greentopli.model.BinaryModelCodec;
 import com.greentopli.model.Product;
 import com.greentopli.model.PurchasedItem;
 import com.greentopli.model.User;
 import com.greentopli.model.list.EntityList;
+import com.greentopli.model.list.ProductUpdates;
 import com.greentopli.model.list.UserOrders;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Created by rnztx on 19/10/16.
  */
 
 public interface BackendConnectionService {
+	// cached response is always revalidated, server answers 304 if it did not change
+	String REVALIDATE = "Cache-Control: max-age=0";
+	// compact format preferred for lists, JSON is still accepted, see BinaryConverterFactory
+	String ACCEPT_BINARY = "Accept: " + BinaryModelCodec.MEDIA_TYPE + ", application/json;q=0.9";
+	// body may be gzipped, see GzipRequestInterceptor
+	String COMPRESS_REQUEST = GzipRequestInterceptor.HEADER + ": true";
+
+	@Headers(COMPRESS_REQUEST)
 	@POST("/_ah/api/server/v1/purchase")
 	Call<BackendResult> storePurchasedItems(@Body UserOrders items);
 
+	@Headers(COMPRESS_REQUEST)
 	@POST("/_ah/api/server/v1/signUpUser")
 	Call<BackendResult> signUpUser(@Body User user);
 
+	@Headers({REVALIDATE, ACCEPT_BINARY})
 	@GET("/_ah/api/server/v1/getPurchasedItemList")
 	Call<EntityList<PurchasedItem>> getUserOrderHistory(@Query("user_id") String user_id);
 
+	@Headers({REVALIDATE, ACCEPT_BINARY})
 	@GET("/_ah/api/server/v1/getProductInfoList")
 	Call<EntityList<Product>> getProductInfoList();
+
+	/**
+	 * Same as {@link #getProductInfoList()}, body is read as it arrives, see {@link ProductStreamReader}
+	 */
+	@Streaming
+	@Headers({REVALIDATE, ACCEPT_BINARY})
+	@GET("/_ah/api/server/v1/getProductInfoList")
+	Call<ResponseBody> streamProductInfoList();
+
+	/**
+	 * @param since largest {@link Product#getTime()} client has stored
+	 */
+	@GET("/_ah/api/server/v1/getProductUpdateList")
+	Call<ProductUpdates> getProductUpdateList(@Query("since") long since);
 }
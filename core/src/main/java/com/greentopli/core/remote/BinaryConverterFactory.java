@@ -0,0 +1,65 @@
+package com.greentopli.core.remote;
+
+import com.google.gson.reflect.TypeToken;
+import com.greentopli.model.BinaryModelCodec;
+import com.greentopli.model.Product;
+import com.greentopli.model.PurchasedItem;
+import com.greentopli.model.list.EntityList;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Reads product & purchased item lists sent in {@link BinaryModelCodec} format. Server picks format
+ * from Accept header of request, see {@link BackendConnectionService#ACCEPT_BINARY}; responses of any
+ * other content type are passed to next converter, i.e. JSON. Must be added before Gson converter.
+ */
+
+public class BinaryConverterFactory extends Converter.Factory {
+	private static final Type PRODUCT_LIST = new TypeToken<EntityList<Product>>() {
+	}.getType();
+	private static final Type PURCHASED_ITEM_LIST = new TypeToken<EntityList<PurchasedItem>>() {
+	}.getType();
+
+	public static boolean isBinary(MediaType contentType) {
+		return contentType != null
+				&& BinaryModelCodec.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype());
+	}
+
+	@Override
+	public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+		final int kind;
+		if (PRODUCT_LIST.equals(type))
+			kind = BinaryModelCodec.KIND_PRODUCTS;
+		else if (PURCHASED_ITEM_LIST.equals(type))
+			kind = BinaryModelCodec.KIND_PURCHASED_ITEMS;
+		else
+			return null;
+		final Converter<ResponseBody, ?> json = retrofit.nextResponseBodyConverter(this, type, annotations);
+		return new Converter<ResponseBody, Object>() {
+			@Override
+			public Object convert(ResponseBody body) throws IOException {
+				if (!isBinary(body.contentType()))
+					return json.convert(body);
+				try {
+					if (kind == BinaryModelCodec.KIND_PRODUCTS) {
+						EntityList<Product> products = new EntityList<>();
+						products.setItems(BinaryModelCodec.readProducts(body.byteStream()));
+						return products;
+					}
+					EntityList<PurchasedItem> items = new EntityList<>();
+					items.setItems(BinaryModelCodec.readPurchasedItems(body.byteStream()));
+					return items;
+				} finally {
+					body.close();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,118 @@
+package com.greentopli.core.remote;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Gzips request bodies of endpoints marked with {@link #HEADER} (see
+ * {@link BackendConnectionService#COMPRESS_REQUEST}) once they reach a size threshold. A host answering
+ * 415 Unsupported Media Type to a compressed body gets the request again uncompressed & no compressed
+ * bodies afterwards.
+ */
+
+public class GzipRequestInterceptor implements Interceptor {
+	// marks endpoints whose body may be compressed, not sent to server
+	public static final String HEADER = "X-Compress-Request";
+	private static final String CONTENT_ENCODING = "Content-Encoding";
+	private static final String GZIP = "gzip";
+
+	private final long mMinSize;
+	private final Set<String> mUnsupportedHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicLong mCompressedRequests = new AtomicLong();
+	private final AtomicLong mBytesBefore = new AtomicLong();
+	private final AtomicLong mBytesAfter = new AtomicLong();
+	private final AtomicLong mFallbacks = new AtomicLong();
+
+	/**
+	 * @param minSize bodies smaller than this many bytes are sent as they are
+	 */
+	public GzipRequestInterceptor(long minSize) {
+		mMinSize = minSize;
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		Request request = chain.request();
+		if (request.header(HEADER) == null)
+			return chain.proceed(request);
+		Request plain = request.newBuilder().removeHeader(HEADER).build();
+		RequestBody body = plain.body();
+		String host = plain.url().host();
+		if (body == null || plain.header(CONTENT_ENCODING) != null || mUnsupportedHosts.contains(host))
+			return chain.proceed(plain);
+
+		Buffer original = new Buffer();
+		body.writeTo(original);
+		long originalSize = original.size();
+		// body is consumed, send the copy from now on
+		plain = plain.newBuilder().method(plain.method(), copyOf(body.contentType(), original)).build();
+		if (originalSize < mMinSize)
+			return chain.proceed(plain);
+
+		Buffer compressed = gzip(original);
+		if (compressed.size() >= originalSize)
+			return chain.proceed(plain);
+		long compressedSize = compressed.size();
+		Request gzipped = plain.newBuilder()
+				.header(CONTENT_ENCODING, GZIP)
+				.method(plain.method(), copyOf(body.contentType(), compressed))
+				.build();
+		Response response = chain.proceed(gzipped);
+		if (response.code() != HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+			mCompressedRequests.incrementAndGet();
+			mBytesBefore.addAndGet(originalSize);
+			mBytesAfter.addAndGet(compressedSize);
+			return response;
+		}
+		// server can't read compressed bodies, it will not get them again
+		response.body().close();
+		mUnsupportedHosts.add(host);
+		mFallbacks.incrementAndGet();
+		return chain.proceed(plain);
+	}
+
+	public long getCompressedRequests() {
+		return mCompressedRequests.get();
+	}
+
+	public long getBytesSaved() {
+		return mBytesBefore.get() - mBytesAfter.get();
+	}
+
+	public long getFallbacks() {
+		return mFallbacks.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ENGLISH, "compressed %d requests, %d of %d bytes saved, %d fallbacks",
+				getCompressedRequests(), getBytesSaved(), mBytesBefore.get(), getFallbacks());
+	}
+
+	private static Buffer gzip(Buffer original) throws IOException {
+		Buffer compressed = new Buffer();
+		BufferedSink sink = Okio.buffer(new GzipSink(compressed));
+		original.copyTo(sink.buffer(), 0, original.size());
+		sink.close();
+		return compressed;
+	}
+
+	private static RequestBody copyOf(MediaType contentType, Buffer content) {
+		return RequestBody.create(contentType, content.snapshot());
+	}
+}
@@ -0,0 +1,99 @@
+package com.greentopli.core.remote;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.greentopli.model.BinaryModelCodec;
+import com.greentopli.model.Product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads {@code items} of a product list response one product at a time & hands them over in chunks,
+ * so catalog is never held in memory as a whole. Other members of response are skipped.
+ */
+
+public class ProductStreamReader {
+	private static final String ITEMS = "items";
+	private final Gson mGson;
+	private final int mChunkSize;
+
+	public ProductStreamReader(@NonNull Gson gson, int chunkSize) {
+		mGson = gson;
+		mChunkSize = chunkSize;
+	}
+
+	/**
+	 * @return number of products read
+	 */
+	public int read(@NonNull Reader body, @NonNull ChunkListener listener) throws IOException {
+		JsonReader reader = new JsonReader(body);
+		// read through adapter, Gson.fromJson would wrap IOException of a broken download as JsonSyntaxException
+		TypeAdapter<Product> adapter = mGson.getAdapter(Product.class);
+		int count = 0;
+		try {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (!ITEMS.equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+					reader.skipValue();
+					continue;
+				}
+				List<Product> chunk = new ArrayList<>(mChunkSize);
+				reader.beginArray();
+				while (reader.hasNext()) {
+					chunk.add(adapter.read(reader));
+					count++;
+					if (chunk.size() == mChunkSize) {
+						listener.onChunk(chunk);
+						chunk = new ArrayList<>(mChunkSize);
+					}
+				}
+				reader.endArray();
+				if (!chunk.isEmpty())
+					listener.onChunk(chunk);
+			}
+			reader.endObject();
+		} finally {
+			reader.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Same as {@link #read(Reader, ChunkListener)} for a body in {@link BinaryModelCodec} format.
+	 */
+	public int readBinary(@NonNull InputStream body, @NonNull ChunkListener listener) throws IOException {
+		int count = 0;
+		try {
+			BinaryModelCodec.RecordReader reader = new BinaryModelCodec.RecordReader(body, BinaryModelCodec.KIND_PRODUCTS);
+			List<Product> chunk = new ArrayList<>(mChunkSize);
+			while (reader.hasNext()) {
+				chunk.add(reader.nextProduct());
+				count++;
+				if (chunk.size() == mChunkSize) {
+					listener.onChunk(chunk);
+					chunk = new ArrayList<>(mChunkSize);
+				}
+			}
+			if (!chunk.isEmpty())
+				listener.onChunk(chunk);
+		} finally {
+			body.close();
+		}
+		return count;
+	}
+
+	public interface ChunkListener {
+		/**
+		 * @param products next products of response, list is not used by reader afterwards
+		 */
+		void onChunk(@NonNull List<Product> products) throws IOException;
+	}
+}
@@ -1,25 +1,160 @@
 package com.greentopli.core.remote;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.greentopli.model.ModelTypeAdapterFactory;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
  * Created by rnztx on 9/10/16.
  * https://futurestud.io/tutorials/retrofit-getting-started-and-android-client
+ * <p>
+ * All services share one {@link OkHttpClient}, so connections & TLS sessions to backend are reused
+ * across presenters & services instead of being set up again for every call. Once
+ * {@link #initialize(Context, long)} is called responses are cached on disk & revalidated with
+ * ETag / Last-Modified, see {@link #isNotModified(Response)}.
  */
 
 public class ServiceGenerator {
+	private static final String TAG = ServiceGenerator.class.getSimpleName();
 	private static final String BASE_URL = "https://green-topli.appspot.com";
-	private static OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
+	private static final String CACHE_DIRECTORY = "http";
+	public static final long DEFAULT_CACHE_SIZE = 5 * 1024 * 1024;
+	// every request goes to the same host, few idle connections are enough
+	private static final int MAX_IDLE_CONNECTIONS = 2;
+	private static final long KEEP_ALIVE_MINUTES = 5;
+	private static final int MAX_REQUESTS_PER_HOST = 4;
+	// smaller bodies gain too little from compression to pay for it
+	private static final long MIN_COMPRESSED_BODY_SIZE = 1024;
+
+	// models are bound without reflection
+	private static final Gson sGson = new GsonBuilder()
+			.registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+			.create();
+	private static final GzipRequestInterceptor sRequestCompression = new GzipRequestInterceptor(MIN_COMPRESSED_BODY_SIZE);
+	private static Cache sCache;
+	private static Retrofit sRetrofit;
+	private static final Map<Class<?>, Object> sServices = new HashMap<>();
+
+	/**
+	 * Enables response cache. Has no effect once first service is created or cache is enabled already,
+	 * services keep their client.
+	 *
+	 * @param cacheSize maximum size of cache directory in bytes
+	 */
+	public static synchronized void initialize(@NonNull Context context, long cacheSize) {
+		if (sRetrofit != null || sCache != null) {
+			Log.w(TAG, "initialize ignored, " + (sRetrofit != null ? "services are created already" : "cache is enabled already"));
+			return;
+		}
+		sCache = new Cache(new File(context.getCacheDir(), CACHE_DIRECTORY), cacheSize);
+	}
+
+	/**
+	 * @return proxy of given service, created once & shared afterwards
+	 */
+	public static synchronized <S> S createService(Class<S> serviceClass) {
+		if (sRetrofit == null)
+			sRetrofit = createRetrofit(HttpUrl.parse(BASE_URL), createHttpClient(sCache));
+		Object service = sServices.get(serviceClass);
+		if (service == null) {
+			service = sRetrofit.create(serviceClass);
+			sServices.put(serviceClass, service);
+		}
+		return serviceClass.cast(service);
+	}
+
+	/**
+	 * @return true if server confirmed cached body is still current, caller already has its content
+	 */
+	public static boolean isNotModified(Response<?> response) {
+		okhttp3.Response raw = response.raw();
+		return raw.cacheResponse() != null && (raw.networkResponse() == null
+				|| raw.networkResponse().code() == HttpURLConnection.HTTP_NOT_MODIFIED);
+	}
 
-	private static Retrofit.Builder builder =
-			new Retrofit.Builder()
-					.baseUrl(BASE_URL)
-					.addConverterFactory(GsonConverterFactory.create());
+	/**
+	 * Drops cached response of given call, eg. when its content could not be stored. Otherwise server
+	 * would keep answering not modified for content which client does not have.
+	 */
+	public static synchronized void evict(Response<?> response) {
+		if (sCache == null)
+			return;
+		String url = response.raw().request().url().toString();
+		try {
+			Iterator<String> urls = sCache.urls();
+			while (urls.hasNext()) {
+				if (urls.next().equals(url))
+					urls.remove();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return request, network & hit counts of response cache, for logging
+	 */
+	public static synchronized String getCacheStats() {
+		if (sCache == null)
+			return "cache disabled";
+		int requests = sCache.requestCount();
+		int hits = sCache.hitCount();
+		return String.format(Locale.ENGLISH, "requests %d, network %d, hits %d, hit ratio %.2f",
+				requests, sCache.networkCount(), hits, requests > 0 ? (float) hits / requests : 0f);
+	}
+
+	/**
+	 * @return counts of compressed request bodies, for logging
+	 */
+	public static String getRequestCompressionStats() {
+		return sRequestCompression.toString();
+	}
+
+	/**
+	 * @return Gson used for responses, for reading response bodies directly
+	 */
+	public static Gson getGson() {
+		return sGson;
+	}
+
+	static OkHttpClient createHttpClient(Cache cache) {
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+		return new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+				.dispatcher(dispatcher)
+				.cache(cache)
+				.addInterceptor(sRequestCompression)
+				.build();
+	}
 
-	public static <S> S createService(Class<S> serviceClass) {
-		Retrofit retrofit = builder.client(httpClient.build()).build();
-		return retrofit.create(serviceClass);
+	static Retrofit createRetrofit(HttpUrl baseUrl, OkHttpClient httpClient) {
+		return new Retrofit.Builder()
+				.baseUrl(baseUrl)
+				.client(httpClient)
+				.addConverterFactory(new BinaryConverterFactory())
+				.addConverterFactory(GsonConverterFactory.create(sGson))
+				.build();
 	}
 }
@@ -7,10 +7,10 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.greentopli.Constants;
-import com.greentopli.core.Utils;
 import com.greentopli.core.remote.BackendConnectionService;
 import com.greentopli.core.remote.ServiceGenerator;
 import com.greentopli.core.storage.helper.CartDbHelper;
+import com.greentopli.core.storage.helper.OrderHistoryMerge;
 import com.greentopli.core.storage.helper.UserDbHelper;
 import com.greentopli.model.PurchasedItem;
 import com.greentopli.model.User;
@@ -41,6 +41,7 @@ public class OrderHistoryService extends IntentService {
 	protected void onHandleIntent(Intent intent) {
 		Log.d(TAG, "Started " + Calendar.getInstance().getTime());
 		String user_id = intent.getDataString();
+		boolean success = true;
 
 		if (user_id != null && !user_id.isEmpty()) {
 			broadcast(ACTION_PROCESSING);
@@ -51,21 +52,34 @@ public class OrderHistoryService extends IntentService {
 			try {
 				// no need to enqueue as we are on Background thread
 				Response<EntityList<PurchasedItem>> response = call.execute();
-				if (response != null && response.body() != null
+				if (ServiceGenerator.isNotModified(response)) {
+					Log.d(TAG, "Order history not modified");
+				} else if (!response.isSuccessful()) {
+					Log.e(TAG, "Order history not available " + response.code());
+					success = false;
+				} else if (response.body() != null
 						&& response.body().getItems() != null && !response.body().getItems().isEmpty()) {
-					cartDbHelper.storeOrderHistory(
+					OrderHistoryMerge merge = cartDbHelper.storeOrderHistory(
 							response.body().getItems()
 					);
+					// history must be downloaded again next time
+					if (merge == null) {
+						ServiceGenerator.evict(response);
+						success = false;
+					}
+					Log.d(TAG, "Order history " + merge);
 				}
 				// empty case will be handled by presenter
-				broadcast(ACTION_PROCESSING_COMPLETE);
+				broadcast(success ? ACTION_PROCESSING_COMPLETE : ACTION_PROCESSING_FAILED);
 				// send broadcast for WidgetUpdate
 				broadcast(Constants.ACTION_WIDGET_UPDATE);
 			} catch (Exception e) {
 				e.printStackTrace();
+				success = false;
 				broadcast(ACTION_PROCESSING_FAILED);
 			}
 		}
+		SyncScheduler.getInstance(this).onSyncFinished(SyncScheduler.Job.HISTORY, success);
 	}
 
 	private void broadcast(String action) {
@@ -75,15 +89,17 @@ public class OrderHistoryService extends IntentService {
 		Log.d(TAG, " status " + action);
 	}
 
-	public static void start(Context context) {
+	/**
+	 * Started by {@link SyncScheduler}, request sync from there
+	 *
+	 * @return null when no user is signed in
+	 */
+	static Intent createIntent(Context context) {
 		User user = new UserDbHelper(context).getSignedUserInfo();
-		// verify service is not running already
-		if (user != null && !Utils.isMyServiceRunning(OrderHistoryService.class, context)) {
-			String userId = user.getEmail();
-			// start service to get new data
-			Intent orderHistoryService = new Intent(context, OrderHistoryService.class);
-			orderHistoryService.setData(Uri.parse(userId));
-			context.startService(orderHistoryService);
-		}
+		if (user == null)
+			return null;
+		Intent orderHistoryService = new Intent(context, OrderHistoryService.class);
+		orderHistoryService.setData(Uri.parse(user.getEmail()));
+		return orderHistoryService;
 	}
 }
@@ -3,18 +3,26 @@ package com.greentopli.core.service;
 import android.app.IntentService;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.util.Log;
 
-import com.greentopli.core.Utils;
 import com.greentopli.core.remote.BackendConnectionService;
+import com.greentopli.core.remote.BinaryConverterFactory;
+import com.greentopli.core.remote.ProductStreamReader;
 import com.greentopli.core.remote.ServiceGenerator;
+import com.greentopli.core.storage.helper.CatalogIngest;
 import com.greentopli.core.storage.helper.ProductDbHelper;
 import com.greentopli.model.Product;
-import com.greentopli.model.list.EntityList;
+import com.greentopli.model.list.ProductUpdates;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
-import retrofit2.Call;
+import okhttp3.ResponseBody;
 import retrofit2.Response;
 
 /**
@@ -27,6 +35,16 @@ public class ProductService extends IntentService {
 	public static final String ACTION_ERROR = "com.greentopli.core.service.ProductService.ERROR";
 	public static final String ACTION_SUCCESS = "com.greentopli.core.service.ProductService.SUCCESS";
 	public static final String ACTION_EMPTY = "com.greentopli.core.service.ProductService.EMPTY";
+	// stored catalog is up to date
+	public static final String ACTION_NOT_MODIFIED = "com.greentopli.core.service.ProductService.NOT_MODIFIED";
+	// products parsed before they are handed to database
+	private static final int INGEST_CHUNK_SIZE = 250;
+	private static final String PREFERENCES = "product_service";
+	// time server answered update list with 404, endpoint is asked again only after a while
+	private static final String KEY_UPDATES_UNSUPPORTED_SINCE = "updates_unsupported_since";
+	private static final long UPDATES_RECHECK_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+	// largest Product.time of a completely stored catalog, updates are asked for since then
+	private static final String KEY_LATEST_PRODUCT_TIME = "latest_product_time";
 
 	public ProductService() {
 		super(ProductService.class.getSimpleName());
@@ -37,27 +55,131 @@ public class ProductService extends IntentService {
 		BackendConnectionService service = ServiceGenerator.createService(BackendConnectionService.class);
 		final ProductDbHelper dbHandler = new ProductDbHelper(getApplicationContext());
 		Log.d(TAG, "started " + Calendar.getInstance().getTime());
-		Call<EntityList<Product>> call = service.getProductInfoList();
+		boolean success = false;
 
 		try {
-			Response<EntityList<Product>> response = call.execute();
-			if (response.body() != null && response.body().getItems() != null) {
-				// we get Items
-				if (response.body().getItems().size() > 0) {
-					// store to database
-					dbHandler.storeProducts(response.body().getItems());
-					broadcast(ACTION_SUCCESS);
-				} else { // server sends empty list
-					Log.e(TAG, "Empty product list");
-					broadcast(ACTION_EMPTY);
-				}
-			} else {// bad response
-				Log.e(TAG, "Bad response " + response.errorBody());
-				broadcast(ACTION_ERROR);
-			}
+			// not taken from product table, aborted full sync leaves newer products next to old ones
+			long latestProductTime = getPreferences().getLong(KEY_LATEST_PRODUCT_TIME, 0);
+			// catalog is available, fetch only changes
+			if (latestProductTime <= 0 || !isUpdateListSupported()
+					|| !syncProductUpdates(service, dbHandler, latestProductTime))
+				syncAllProducts(service, dbHandler, latestProductTime > 0);
+			success = true;
 		} catch (Exception e) {
 			e.printStackTrace();
 			broadcast(ACTION_ERROR);
+		} finally {
+			SyncScheduler.getInstance(this).onSyncFinished(SyncScheduler.Job.CATALOG, success);
+		}
+	}
+
+	/**
+	 * Downloads & stores only products changed after {@code since}
+	 *
+	 * @return false if server couldn't provide changes & full sync is needed
+	 */
+	private boolean syncProductUpdates(BackendConnectionService service, ProductDbHelper dbHandler,
+	                                   long since) throws IOException {
+		Response<ProductUpdates> response = service.getProductUpdateList(since).execute();
+		if (response.code() == HttpURLConnection.HTTP_NOT_FOUND) {
+			// server without delta endpoint, don't pay this round trip on every sync
+			getPreferences().edit().putLong(KEY_UPDATES_UNSUPPORTED_SINCE, System.currentTimeMillis()).apply();
+			Log.e(TAG, "Product updates not supported by server");
+			return false;
+		}
+		if (!response.isSuccessful() || response.body() == null) {
+			Log.e(TAG, "Product updates not available " + response.code());
+			return false;
+		}
+		ProductUpdates updates = response.body();
+		if (updates.isEmpty()) {
+			broadcast(ACTION_NOT_MODIFIED);
+			return true;
+		}
+		List<Product> products = updates.getItems() != null ?
+				updates.getItems() : Collections.<Product>emptyList();
+		List<String> deletedIds = updates.getDeletedIds() != null ?
+				updates.getDeletedIds() : Collections.<String>emptyList();
+		if (!dbHandler.storeProductUpdates(products, deletedIds))
+			return false;
+		setLatestProductTime(getLatestProductTime(products, since));
+		Log.d(TAG, String.format(Locale.ENGLISH, "updated %d, deleted %d products", products.size(), deletedIds.size()));
+		broadcast(ACTION_SUCCESS);
+		return true;
+	}
+
+	private boolean isUpdateListSupported() {
+		long unsupportedSince = getPreferences().getLong(KEY_UPDATES_UNSUPPORTED_SINCE, 0);
+		return System.currentTimeMillis() - unsupportedSince > UPDATES_RECHECK_MILLIS;
+	}
+
+	private SharedPreferences getPreferences() {
+		return getSharedPreferences(PREFERENCES, MODE_PRIVATE);
+	}
+
+	/**
+	 * Called only once products are stored, so a failed sync asks for same changes again.
+	 */
+	private void setLatestProductTime(long time) {
+		getPreferences().edit().putLong(KEY_LATEST_PRODUCT_TIME, time).apply();
+	}
+
+	private static long getLatestProductTime(List<Product> products, long since) {
+		long latest = since;
+		for (Product product : products) {
+			latest = Math.max(latest, product.getTime());
+		}
+		return latest;
+	}
+
+	/**
+	 * @param catalogStored whether database holds the catalog, list confirmed unchanged by server
+	 *                      is not written again then
+	 */
+	private void syncAllProducts(BackendConnectionService service, ProductDbHelper dbHandler,
+	                             boolean catalogStored) throws IOException {
+		Response<ResponseBody> response = service.streamProductInfoList().execute();
+		Log.d(TAG, "http cache " + ServiceGenerator.getCacheStats());
+		if (catalogStored && ServiceGenerator.isNotModified(response)) {
+			response.body().close();
+			broadcast(ACTION_NOT_MODIFIED);
+			return;
+		}
+		if (!response.isSuccessful() || response.body() == null) {// bad response
+			Log.e(TAG, "Bad response " + response.errorBody());
+			throw new IOException("Product list not available " + response.code());
+		}
+		// products are stored while rest of response is downloaded
+		ProductStreamReader reader = new ProductStreamReader(ServiceGenerator.getGson(), INGEST_CHUNK_SIZE);
+		CatalogIngest ingest = new CatalogIngest(dbHandler);
+		ResponseBody body = response.body();
+		int count;
+		try {
+			if (BinaryConverterFactory.isBinary(body.contentType()))
+				count = reader.readBinary(body.byteStream(), ingest);
+			else
+				count = reader.read(body.charStream(), ingest);
+			// server sends empty list, stored catalog is kept
+			if (count > 0) {
+				ingest.finish();
+				setLatestProductTime(ingest.getLatestProductTime());
+			} else
+				ingest.abort();
+		} catch (IOException | RuntimeException e) {
+			// malformed product surfaces as RuntimeException, writer thread must stop either way
+			ingest.abort();
+			// next sync must download catalog again
+			ServiceGenerator.evict(response);
+			throw e;
+		} finally {
+			body.close();
+		}
+		if (count > 0) {
+			Log.d(TAG, String.format(Locale.ENGLISH, "stored %d products", count));
+			broadcast(ACTION_SUCCESS);
+		} else {
+			Log.e(TAG, "Empty product list");
+			broadcast(ACTION_EMPTY);
 		}
 	}
 
@@ -68,10 +190,10 @@ public class ProductService extends IntentService {
 		Log.d(TAG, "completed with " + action);
 	}
 
-	public static void start(Context context) {
-		if (!Utils.isMyServiceRunning(ProductService.class, context)) {
-			Intent intentService = new Intent(context, ProductService.class);
-			context.startService(intentService);
-		}
+	/**
+	 * Started by {@link SyncScheduler}, request sync from there
+	 */
+	static Intent createIntent(Context context) {
+		return new Intent(context, ProductService.class);
 	}
 }
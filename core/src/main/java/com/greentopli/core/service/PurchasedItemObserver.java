@@ -1,55 +1,95 @@
 package com.greentopli.core.service;
 
 import android.content.Context;
-import android.database.ContentObserver;
-import android.net.Uri;
 import android.os.Handler;
+import android.support.annotation.NonNull;
 
+import com.greentopli.core.storage.ChangeSet;
+import com.greentopli.core.storage.RowChangeObserver;
+import com.greentopli.core.storage.helper.CartAggregate;
 import com.greentopli.core.storage.helper.CartDbHelper;
-import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
-import com.greentopli.model.Product;
 
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by rnztx on 25/10/16.
+ * <p>
+ * Keeps cart item count & subtotal up to date from changed rows only, whole cart is read again
+ * just when provider reports a table level change. Listener is called on handler's thread.
  */
 
-public class PurchasedItemObserver extends ContentObserver {
+public class PurchasedItemObserver extends RowChangeObserver {
 	private static final String TAG = PurchasedItemObserver.class.getSimpleName();
+	// quick +/- taps on volume are reported as one change
+	private static final long DEBOUNCE_MILLIS = 150;
+	private final Handler handler;
 	private Context context;
 	private Listener listener;
 	CartDbHelper cartDbHelper;
+	private final CartAggregate cartAggregate = new CartAggregate();
+	private boolean loaded = false;
 
 	public PurchasedItemObserver(Handler handler, Context context, Listener listener) {
-		super(handler);
+		super(handler, DEBOUNCE_MILLIS);
+		this.handler = handler;
 		this.context = context;
 		this.listener = listener;
 		cartDbHelper = new CartDbHelper(context);
 	}
 
 	@Override
-	public void onChange(boolean selfChange) {
-		super.onChange(selfChange);
-	}
-
-	@Override
-	public void onChange(boolean selfChange, Uri uri) {
-		super.onChange(selfChange, uri);
-		if (uri.equals(PurchasedItemColumns.CONTENT_URI)) {
-			updateCartInformation();
+	protected void onRowsChanged(@NonNull ChangeSet changes) {
+		if (!loaded || changes.isTableChanged()) {
+			recompute();
+			return;
+		}
+		for (long rowId : changes.getDeleted()) {
+			cartAggregate.remove(rowId);
+		}
+		Set<Long> changedRows = new LinkedHashSet<>(changes.getInserted());
+		changedRows.addAll(changes.getUpdated());
+		if (!changedRows.isEmpty()) {
+			long[] rowIds = new long[changedRows.size()];
+			int i = 0;
+			for (long rowId : changedRows) {
+				rowIds[i++] = rowId;
+			}
+			Map<Long, Integer> rowPrices = cartDbHelper.getCartRowPrices(rowIds);
+			for (long rowId : rowIds) {
+				// rows missing from result have left the cart, eg. accepted by seller
+				Integer price = rowPrices.get(rowId);
+				if (price != null)
+					cartAggregate.put(rowId, price);
+				else
+					cartAggregate.remove(rowId);
+			}
 		}
+		notifyListener();
 	}
 
+	/**
+	 * Reads whole cart on handler's thread & reports it, used once the observer is registered.
+	 */
 	public void updateCartInformation() {
-		int totalOrderPrice = cartDbHelper.getCartSubtotal();
-		List<Product> cartProducts = cartDbHelper.getProductsFromCart(false);
-		if (cartProducts != null) {
-			listener.onCartItemsChanged(totalOrderPrice, cartProducts.size());
-		} else {
-			// Cart is empty
-			listener.onCartItemsChanged(0, 0);
-		}
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				recompute();
+			}
+		});
+	}
+
+	private void recompute() {
+		cartAggregate.reset(cartDbHelper.getCartRowPrices());
+		loaded = true;
+		notifyListener();
+	}
+
+	private void notifyListener() {
+		// Cart is empty when count is 0
+		listener.onCartItemsChanged(cartAggregate.getSubtotal(), cartAggregate.getItemCount());
 	}
 
 	public interface Listener {
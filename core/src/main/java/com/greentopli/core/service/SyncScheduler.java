@@ -0,0 +1,223 @@
+package com.greentopli.core.service;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Single entry point for background syncs. Requests for a job already running or pending are merged,
+ * jobs run one at a time in order of urgency & {@link Job} priority, failed jobs are retried with
+ * exponential backoff. Non urgent requests are skipped while data is fresher than job's minimum
+ * interval & wait until first frame of app has been drawn, so they don't compete with cold start.
+ * Services report back with {@link #onSyncFinished(Job, boolean)}.
+ */
+
+public class SyncScheduler {
+	private static final String TAG = SyncScheduler.class.getSimpleName();
+	private static final String PREFERENCES = "sync_scheduler";
+	private static final String KEY_LAST_SUCCESS = "last_success_";
+	// non urgent jobs start anyway when no activity draws, e.g. process started for a service
+	private static final long FIRST_FRAME_TIMEOUT_MILLIS = 10 * 1000;
+	private static SyncScheduler sInstance;
+
+	/**
+	 * Jobs in order of priority
+	 */
+	public enum Job {
+		CATALOG(60 * 60 * 1000),
+		HISTORY(15 * 60 * 1000);
+
+		private final long mMinInterval;
+
+		Job(long minInterval) {
+			mMinInterval = minInterval;
+		}
+	}
+
+	private final Context mContext;
+	private final SharedPreferences mPreferences;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final Map<Job, SyncState> mStates = new EnumMap<>(Job.class);
+	private boolean mFirstFrameRendered;
+	private final Runnable mDispatch = new Runnable() {
+		@Override
+		public void run() {
+			dispatch();
+		}
+	};
+	private final Runnable mFirstFrame = new Runnable() {
+		@Override
+		public void run() {
+			onFirstFrameRendered();
+		}
+	};
+
+	private SyncScheduler(Context context) {
+		mContext = context;
+		mPreferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+		for (Job job : Job.values()) {
+			mStates.put(job, new SyncState(job.mMinInterval, mPreferences.getLong(KEY_LAST_SUCCESS + job.name(), 0)));
+		}
+		if (context instanceof Application)
+			((Application) context).registerActivityLifecycleCallbacks(mFirstFrameCallbacks);
+		mHandler.postDelayed(mFirstFrame, FIRST_FRAME_TIMEOUT_MILLIS);
+	}
+
+	public static synchronized SyncScheduler getInstance(@NonNull Context context) {
+		if (sInstance == null) {
+			sInstance = new SyncScheduler(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * @param urgent user is waiting for result, job skips minimum interval, backoff & first frame
+	 */
+	public void requestSync(@NonNull Job job, boolean urgent) {
+		synchronized (this) {
+			mStates.get(job).request(System.currentTimeMillis(), urgent);
+		}
+		dispatchOnMainThread();
+	}
+
+	/**
+	 * Called by service of job when it's done, from any thread
+	 */
+	public void onSyncFinished(@NonNull Job job, boolean success) {
+		long now = System.currentTimeMillis();
+		SyncState state = mStates.get(job);
+		synchronized (this) {
+			state.onFinished(now, success);
+		}
+		if (success)
+			mPreferences.edit().putLong(KEY_LAST_SUCCESS + job.name(), now).apply();
+		Log.d(TAG, job + " finished, success " + success);
+		dispatchOnMainThread();
+	}
+
+	private void dispatchOnMainThread() {
+		mHandler.removeCallbacks(mDispatch);
+		mHandler.post(mDispatch);
+	}
+
+	/**
+	 * Starts next ready job unless one is running, schedules itself again for jobs in backoff
+	 * & for running job going stale, so requests are not stuck behind a job whose service never reports back
+	 */
+	private synchronized void dispatch() {
+		long now = System.currentTimeMillis();
+		long nextRetry = Long.MAX_VALUE;
+		for (SyncState state : mStates.values()) {
+			if (state.isRunning(now)) {
+				// running until strictly more than STALE_MILLIS have passed
+				mHandler.removeCallbacks(mDispatch);
+				mHandler.postDelayed(mDispatch, state.getStartedAt() + SyncState.STALE_MILLIS + 1 - now);
+				return;
+			}
+			if (state.isRequested() && !state.isUrgent())
+				nextRetry = Math.min(nextRetry, state.getRetryTime());
+		}
+		Job next = findReadyJob(now, true);
+		if (next == null && mFirstFrameRendered)
+			next = findReadyJob(now, false);
+		if (next != null) {
+			start(next, now);
+		} else if (nextRetry > now && nextRetry != Long.MAX_VALUE) {
+			mHandler.removeCallbacks(mDispatch);
+			mHandler.postDelayed(mDispatch, nextRetry - now);
+		}
+	}
+
+	private Job findReadyJob(long now, boolean urgent) {
+		for (Job job : Job.values()) {
+			SyncState state = mStates.get(job);
+			if (state.isUrgent() == urgent && state.isReady(now))
+				return job;
+		}
+		return null;
+	}
+
+	private void start(Job job, long now) {
+		Intent intent = job == Job.CATALOG ?
+				ProductService.createIntent(mContext) : OrderHistoryService.createIntent(mContext);
+		SyncState state = mStates.get(job);
+		state.onStarted(now);
+		if (intent == null) {
+			// nothing to sync, e.g. history without signed user
+			state.onFinished(now, true);
+			dispatchOnMainThread();
+			return;
+		}
+		Log.d(TAG, "starting " + job + " after " + state.getFailures() + " failures");
+		mContext.startService(intent);
+	}
+
+	private synchronized void onFirstFrameRendered() {
+		if (mFirstFrameRendered)
+			return;
+		mFirstFrameRendered = true;
+		mHandler.removeCallbacks(mFirstFrame);
+		if (mContext instanceof Application)
+			((Application) mContext).unregisterActivityLifecycleCallbacks(mFirstFrameCallbacks);
+		dispatch();
+	}
+
+	private final Application.ActivityLifecycleCallbacks mFirstFrameCallbacks = new Application.ActivityLifecycleCallbacks() {
+		private boolean mWaitingForDraw;
+
+		@Override
+		public void onActivityResumed(Activity activity) {
+			if (mWaitingForDraw)
+				return;
+			mWaitingForDraw = true;
+			final View decorView = activity.getWindow().getDecorView();
+			decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+				@Override
+				public boolean onPreDraw() {
+					ViewTreeObserver observer = decorView.getViewTreeObserver();
+					if (observer.isAlive())
+						observer.removeOnPreDrawListener(this);
+					// runs after traversal, once frame is drawn
+					mHandler.post(mFirstFrame);
+					return true;
+				}
+			});
+		}
+
+		@Override
+		public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+		}
+
+		@Override
+		public void onActivityStarted(Activity activity) {
+		}
+
+		@Override
+		public void onActivityPaused(Activity activity) {
+		}
+
+		@Override
+		public void onActivityStopped(Activity activity) {
+		}
+
+		@Override
+		public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+		}
+
+		@Override
+		public void onActivityDestroyed(Activity activity) {
+		}
+	};
+}
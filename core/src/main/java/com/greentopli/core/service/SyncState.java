@@ -0,0 +1,111 @@
+package com.greentopli.core.service;
+
+/**
+ * Refresh interval, backoff & pending request of one sync job. Times are passed in by caller,
+ * so policy does not depend on clock.
+ */
+
+class SyncState {
+	static final long BACKOFF_MILLIS = 30 * 1000;
+	static final long MAX_BACKOFF_MILLIS = 30 * 60 * 1000;
+	// job not finished by then is assumed lost, e.g. its process was killed
+	static final long STALE_MILLIS = 10 * 60 * 1000;
+	// failed jobs are retried on their own this many times
+	static final int MAX_RETRIES = 3;
+
+	private final long mMinInterval;
+	private long mLastSuccess;
+	private long mLastFailure;
+	private int mFailures;
+	private long mStartedAt;
+	private boolean mRunning;
+	private boolean mRequested;
+	private boolean mUrgent;
+
+	SyncState(long minInterval, long lastSuccess) {
+		mMinInterval = minInterval;
+		mLastSuccess = lastSuccess;
+	}
+
+	/**
+	 * Requests of running or pending job are merged. Non urgent request is dropped while data
+	 * is fresher than minimum interval, urgent one runs anyway & even once more when job is running
+	 * already, since running job could have missed change that caused request.
+	 */
+	void request(long now, boolean urgent) {
+		if (!urgent && (mRunning || isFresh(now)))
+			return;
+		mRequested = true;
+		mUrgent |= urgent;
+	}
+
+	/**
+	 * @return whether job should be started now
+	 */
+	boolean isReady(long now) {
+		if (!mRequested || isRunning(now))
+			return false;
+		return mUrgent || now >= getRetryTime();
+	}
+
+	/**
+	 * @return time from which failed job may be retried, 0 if it did not fail
+	 */
+	long getRetryTime() {
+		if (mFailures == 0)
+			return 0;
+		long backoff = BACKOFF_MILLIS << Math.min(mFailures - 1, 16);
+		return mLastFailure + Math.min(backoff, MAX_BACKOFF_MILLIS);
+	}
+
+	void onStarted(long now) {
+		mRunning = true;
+		mStartedAt = now;
+		mRequested = false;
+		mUrgent = false;
+	}
+
+	void onFinished(long now, boolean success) {
+		mRunning = false;
+		if (success) {
+			mLastSuccess = now;
+			mFailures = 0;
+		} else {
+			mLastFailure = now;
+			mFailures++;
+			// retry after backoff unless requested again meanwhile
+			if (mFailures <= MAX_RETRIES)
+				mRequested = true;
+		}
+	}
+
+	boolean isRunning(long now) {
+		if (mRunning && now - mStartedAt > STALE_MILLIS)
+			mRunning = false;
+		return mRunning;
+	}
+
+	boolean isRequested() {
+		return mRequested;
+	}
+
+	boolean isUrgent() {
+		return mUrgent;
+	}
+
+	long getStartedAt() {
+		return mStartedAt;
+	}
+
+	long getLastSuccess() {
+		return mLastSuccess;
+	}
+
+	int getFailures() {
+		return mFailures;
+	}
+
+	private boolean isFresh(long now) {
+		return mLastSuccess > 0 && now - mLastSuccess < mMinInterval;
+	}
+}
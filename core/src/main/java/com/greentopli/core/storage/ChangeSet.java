@@ -0,0 +1,133 @@
+package com.greentopli.core.storage;
+
+import android.net.Uri;
+
+import com.greentopli.core.storage.base.BaseContentProvider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rows of one table changed since last delivery, built from uris notified by {@link DatabaseProvider}.
+ * When provider could not tell which rows changed, {@link #isTableChanged()} is set & table must be reloaded.
+ * Provider reads ids of updated & deleted rows only for uris built with {@link BaseContentProvider#rowChanges(Uri)}.
+ */
+
+public class ChangeSet {
+	private final Map<Long, String> mRowChanges = new LinkedHashMap<>();
+	private boolean mTableChanged;
+
+	/**
+	 * @param uri notified uri, null when platform did not provide it
+	 */
+	public void add(Uri uri) {
+		if (uri == null || mTableChanged) {
+			mTableChanged = true;
+			return;
+		}
+		String inserted = uri.getQueryParameter(BaseContentProvider.QUERY_INSERTED);
+		String updated = uri.getQueryParameter(BaseContentProvider.QUERY_UPDATED);
+		String deleted = uri.getQueryParameter(BaseContentProvider.QUERY_DELETED);
+		if (inserted == null && updated == null && deleted == null) {
+			// plain table or row uri
+			mTableChanged = true;
+			return;
+		}
+		try {
+			addRowChanges(inserted, BaseContentProvider.CHANGE_INSERT);
+			addRowChanges(updated, BaseContentProvider.CHANGE_UPDATE);
+			addRowChanges(deleted, BaseContentProvider.CHANGE_DELETE);
+		} catch (NumberFormatException e) {
+			mTableChanged = true;
+		}
+	}
+
+	private void addRowChanges(String rowIds, String change) {
+		if (rowIds == null || rowIds.isEmpty())
+			return;
+		for (String rowId : rowIds.split(",")) {
+			addRowChange(Long.parseLong(rowId), change);
+		}
+	}
+
+	public void addRowChange(long rowId, String change) {
+		String previous = mRowChanges.get(rowId);
+		if (BaseContentProvider.CHANGE_INSERT.equals(previous)) {
+			// row did not exist before this set, updates keep it an insert & delete cancels it
+			if (BaseContentProvider.CHANGE_DELETE.equals(change))
+				mRowChanges.remove(rowId);
+			return;
+		}
+		mRowChanges.put(rowId, change);
+	}
+
+	/**
+	 * Rows that changed are not known, whole table must be read again.
+	 */
+	public void setTableChanged() {
+		mTableChanged = true;
+	}
+
+	/**
+	 * @param maxRows above this many changed rows uri carries no ids & means whole table changed
+	 * @return table uri carrying ids of changed rows
+	 */
+	public Uri toUri(Uri tableUri, int maxRows) {
+		if (mTableChanged || mRowChanges.size() > maxRows)
+			return tableUri;
+		Uri.Builder builder = tableUri.buildUpon();
+		appendRows(builder, BaseContentProvider.QUERY_INSERTED, getInserted());
+		appendRows(builder, BaseContentProvider.QUERY_UPDATED, getUpdated());
+		appendRows(builder, BaseContentProvider.QUERY_DELETED, getDeleted());
+		return builder.build();
+	}
+
+	private static void appendRows(Uri.Builder builder, String parameter, Set<Long> rowIds) {
+		if (rowIds.isEmpty())
+			return;
+		StringBuilder value = new StringBuilder();
+		for (long rowId : rowIds) {
+			if (value.length() > 0)
+				value.append(',');
+			value.append(rowId);
+		}
+		builder.appendQueryParameter(parameter, value.toString());
+	}
+
+	public boolean isTableChanged() {
+		return mTableChanged;
+	}
+
+	public boolean isEmpty() {
+		return !mTableChanged && mRowChanges.isEmpty();
+	}
+
+	public Set<Long> getInserted() {
+		return getRows(BaseContentProvider.CHANGE_INSERT);
+	}
+
+	public Set<Long> getUpdated() {
+		return getRows(BaseContentProvider.CHANGE_UPDATE);
+	}
+
+	public Set<Long> getDeleted() {
+		return getRows(BaseContentProvider.CHANGE_DELETE);
+	}
+
+	private Set<Long> getRows(String change) {
+		Set<Long> rows = new LinkedHashSet<>();
+		for (Map.Entry<Long, String> entry : mRowChanges.entrySet()) {
+			if (entry.getValue().equals(change))
+				rows.add(entry.getKey());
+		}
+		return Collections.unmodifiableSet(rows);
+	}
+
+	@Override
+	public String toString() {
+		return mTableChanged ? "table changed" : mRowChanges.toString();
+	}
+}
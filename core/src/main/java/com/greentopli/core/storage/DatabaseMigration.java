@@ -0,0 +1,25 @@
+package com.greentopli.core.storage;
+
+/**
+ * Single schema change, upgrades database from {@code version - 1} to {@code version}.
+ */
+public class DatabaseMigration {
+	private final int version;
+	private final String[] statements;
+
+	public DatabaseMigration(int version, String... statements) {
+		this.version = version;
+		this.statements = statements;
+	}
+
+	/**
+	 * Schema version after this migration is applied.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public String[] getStatements() {
+		return statements;
+	}
+}
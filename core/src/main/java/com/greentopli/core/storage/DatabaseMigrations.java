@@ -0,0 +1,86 @@
+package com.greentopli.core.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.greentopli.core.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordered schema migrations, each one upgrades database by a single version.
+ * New migration must be appended here along with increment of {@link DatabaseSQLiteOpenHelper#DATABASE_VERSION}.
+ */
+public final class DatabaseMigrations {
+	private static final String TAG = DatabaseMigrations.class.getSimpleName();
+
+	// @formatter:off
+	private static final DatabaseMigration[] MIGRATIONS = new DatabaseMigration[]{
+			new DatabaseMigration(2,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_INDEX_PURCHASED_ITEM_ACCEPTED_PRODUCT_ID,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_INDEX_PURCHASED_ITEM_ACCEPTED_USER_ID_DATE_REQUESTED,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_INDEX_PURCHASED_ITEM_ACCEPTED_DATE_REQUESTED,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_INDEX_PRODUCT_TYPE),
+			new DatabaseMigration(3,
+					DatabaseSQLiteOpenHelper.SQL_DROP_TABLE_PRODUCT_SEARCH,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_TABLE_PRODUCT_SEARCH,
+					DatabaseSQLiteOpenHelper.SQL_FILL_TABLE_PRODUCT_SEARCH,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_TRIGGER_PRODUCT_SEARCH_BEFORE_INSERT,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_TRIGGER_PRODUCT_SEARCH_AFTER_INSERT,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_TRIGGER_PRODUCT_SEARCH_AFTER_UPDATE,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_TRIGGER_PRODUCT_SEARCH_AFTER_DELETE),
+			new DatabaseMigration(4,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_INDEX_PRODUCT_NAME_ENGLISH_PRODUCT_ID,
+					DatabaseSQLiteOpenHelper.SQL_CREATE_INDEX_PRODUCT_TYPE_NAME_ENGLISH_PRODUCT_ID,
+					DatabaseSQLiteOpenHelper.SQL_DROP_INDEX_PRODUCT_TYPE)
+	};
+	// @formatter:on
+
+	private DatabaseMigrations() {
+	}
+
+	/**
+	 * @return migrations needed to upgrade from {@code oldVersion} to {@code newVersion}, in order of execution
+	 * @throws IllegalStateException if some version in between has no migration
+	 */
+	public static List<DatabaseMigration> getMigrations(int oldVersion, int newVersion) {
+		List<DatabaseMigration> migrations = new ArrayList<>();
+		int version = oldVersion;
+		for (DatabaseMigration migration : MIGRATIONS) {
+			if (migration.getVersion() <= oldVersion || migration.getVersion() > newVersion)
+				continue;
+			if (migration.getVersion() != version + 1)
+				throw new IllegalStateException("Missing migration to version " + (version + 1));
+			migrations.add(migration);
+			version = migration.getVersion();
+		}
+		if (version != newVersion)
+			throw new IllegalStateException("Missing migration to version " + (version + 1));
+		return migrations;
+	}
+
+	/**
+	 * @return SQL statements upgrading from {@code oldVersion} to {@code newVersion}, in order of execution
+	 */
+	public static List<String> getStatements(int oldVersion, int newVersion) {
+		List<String> statements = new ArrayList<>();
+		for (DatabaseMigration migration : getMigrations(oldVersion, newVersion)) {
+			statements.addAll(Arrays.asList(migration.getStatements()));
+		}
+		return statements;
+	}
+
+	/**
+	 * Runs migrations, caller must already hold a transaction (as {@code SQLiteOpenHelper} does).
+	 */
+	public static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+		for (DatabaseMigration migration : getMigrations(oldVersion, newVersion)) {
+			if (BuildConfig.DEBUG) Log.d(TAG, "Migrating to version " + migration.getVersion());
+			for (String statement : migration.getStatements()) {
+				db.execSQL(statement);
+			}
+		}
+	}
+}
@@ -1,6 +1,10 @@
 package com.greentopli.core.storage;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteOpenHelper;
@@ -13,6 +17,7 @@ import com.greentopli.core.storage.product.ProductColumns;
 import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
 import com.greentopli.core.storage.user.UserColumns;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 
 public class DatabaseProvider extends BaseContentProvider {
@@ -31,6 +36,7 @@ public class DatabaseProvider extends BaseContentProvider {
 
 	private static final int URI_TYPE_PURCHASED_ITEM = 2;
 	private static final int URI_TYPE_PURCHASED_ITEM_ID = 3;
+	private static final int URI_TYPE_PURCHASED_ITEM_PRODUCT = 6;
 
 	private static final int URI_TYPE_USER = 4;
 	private static final int URI_TYPE_USER_ID = 5;
@@ -43,10 +49,27 @@ public class DatabaseProvider extends BaseContentProvider {
 		URI_MATCHER.addURI(AUTHORITY, ProductColumns.TABLE_NAME + "/#", URI_TYPE_PRODUCT_ID);
 		URI_MATCHER.addURI(AUTHORITY, PurchasedItemColumns.TABLE_NAME, URI_TYPE_PURCHASED_ITEM);
 		URI_MATCHER.addURI(AUTHORITY, PurchasedItemColumns.TABLE_NAME + "/#", URI_TYPE_PURCHASED_ITEM_ID);
+		URI_MATCHER.addURI(AUTHORITY, PurchasedItemColumns.TABLE_NAME + "/" + ProductColumns.TABLE_NAME, URI_TYPE_PURCHASED_ITEM_PRODUCT);
 		URI_MATCHER.addURI(AUTHORITY, UserColumns.TABLE_NAME, URI_TYPE_USER);
 		URI_MATCHER.addURI(AUTHORITY, UserColumns.TABLE_NAME + "/#", URI_TYPE_USER_ID);
 	}
 
+	/**
+	 * Applies all operations in single transaction of this provider.
+	 *
+	 * @return results of operations or {@code null} when batch failed & was rolled back
+	 */
+	public static ContentProviderResult[] applyBatch(Context context, ArrayList<ContentProviderOperation> operations) {
+		if (operations.isEmpty())
+			return new ContentProviderResult[0];
+		try {
+			return context.getContentResolver().applyBatch(AUTHORITY, operations);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
 	@Override
 	protected SQLiteOpenHelper createSqLiteOpenHelper() {
 		return DatabaseSQLiteOpenHelper.getInstance(getContext());
@@ -67,6 +90,7 @@ public class DatabaseProvider extends BaseContentProvider {
 				return TYPE_CURSOR_ITEM + ProductColumns.TABLE_NAME;
 
 			case URI_TYPE_PURCHASED_ITEM:
+			case URI_TYPE_PURCHASED_ITEM_PRODUCT:
 				return TYPE_CURSOR_DIR + PurchasedItemColumns.TABLE_NAME;
 			case URI_TYPE_PURCHASED_ITEM_ID:
 				return TYPE_CURSOR_ITEM + PurchasedItemColumns.TABLE_NAME;
@@ -83,12 +107,14 @@ public class DatabaseProvider extends BaseContentProvider {
 	@Override
 	public Uri insert(Uri uri, ContentValues values) {
 		if (DEBUG) Log.d(TAG, "insert uri=" + uri + " values=" + values);
+		checkWritable(uri);
 		return super.insert(uri, values);
 	}
 
 	@Override
 	public int bulkInsert(Uri uri, ContentValues[] values) {
 		if (DEBUG) Log.d(TAG, "bulkInsert uri=" + uri + " values.length=" + values.length);
+		checkWritable(uri);
 		return super.bulkInsert(uri, values);
 	}
 
@@ -96,6 +122,7 @@ public class DatabaseProvider extends BaseContentProvider {
 	public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
 		if (DEBUG)
 			Log.d(TAG, "update uri=" + uri + " values=" + values + " selection=" + selection + " selectionArgs=" + Arrays.toString(selectionArgs));
+		checkWritable(uri);
 		return super.update(uri, values, selection, selectionArgs);
 	}
 
@@ -103,9 +130,16 @@ public class DatabaseProvider extends BaseContentProvider {
 	public int delete(Uri uri, String selection, String[] selectionArgs) {
 		if (DEBUG)
 			Log.d(TAG, "delete uri=" + uri + " selection=" + selection + " selectionArgs=" + Arrays.toString(selectionArgs));
+		checkWritable(uri);
 		return super.delete(uri, selection, selectionArgs);
 	}
 
+	@Override
+	public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+		if (DEBUG) Log.d(TAG, "applyBatch operations.size=" + operations.size());
+		return super.applyBatch(operations);
+	}
+
 	@Override
 	public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
 		if (DEBUG)
@@ -114,6 +148,14 @@ public class DatabaseProvider extends BaseContentProvider {
 		return super.query(uri, projection, selection, selectionArgs, sortOrder);
 	}
 
+	/**
+	 * Joined uri is only read, insert would take its last segment for table name.
+	 */
+	private void checkWritable(Uri uri) {
+		if (URI_MATCHER.match(uri) == URI_TYPE_PURCHASED_ITEM_PRODUCT)
+			throw new UnsupportedOperationException("The uri '" + uri + "' is read only");
+	}
+
 	@Override
 	protected QueryParams getQueryParams(Uri uri, String selection, String[] projection) {
 		QueryParams res = new QueryParams();
@@ -136,6 +178,16 @@ public class DatabaseProvider extends BaseContentProvider {
 				res.orderBy = PurchasedItemColumns.DEFAULT_ORDER;
 				break;
 
+			case URI_TYPE_PURCHASED_ITEM_PRODUCT:
+				// cart & order lines along with their products in one query
+				res.table = PurchasedItemColumns.TABLE_NAME;
+				res.idColumn = PurchasedItemColumns._ID;
+				res.tablesWithJoins = PurchasedItemColumns.TABLE_NAME + " INNER JOIN " + ProductColumns.TABLE_NAME + " ON "
+						+ PurchasedItemColumns.TABLE_NAME + "." + PurchasedItemColumns.PRODUCT_ID + " = "
+						+ ProductColumns.TABLE_NAME + "." + ProductColumns.PRODUCT_ID;
+				res.orderBy = PurchasedItemColumns.DEFAULT_ORDER;
+				break;
+
 			case URI_TYPE_USER:
 			case URI_TYPE_USER_ID:
 				res.table = UserColumns.TABLE_NAME;
@@ -18,7 +18,7 @@ public class DatabaseSQLiteOpenHelper extends SQLiteOpenHelper {
 	private static final String TAG = DatabaseSQLiteOpenHelper.class.getSimpleName();
 
 	public static final String DATABASE_FILE_NAME = "green_topli.db";
-	private static final int DATABASE_VERSION = 1;
+	public static final int DATABASE_VERSION = 4;
 	private static DatabaseSQLiteOpenHelper sInstance;
 	private final Context mContext;
 	private final DatabaseSQLiteOpenHelperCallbacks mOpenHelperCallbacks;
@@ -70,6 +70,85 @@ public class DatabaseSQLiteOpenHelper extends SQLiteOpenHelper {
 			+ ", CONSTRAINT unique_name UNIQUE (email) ON CONFLICT REPLACE"
 			+ " );";
 
+	// indexes matching selections of CartDbHelper & ProductDbHelper, added in version 2
+	public static final String SQL_CREATE_INDEX_PURCHASED_ITEM_ACCEPTED_PRODUCT_ID = "CREATE INDEX IF NOT EXISTS "
+			+ "idx_purchased_item_accepted_product_id ON " + PurchasedItemColumns.TABLE_NAME + " ( "
+			+ PurchasedItemColumns.ACCEPTED + ", " + PurchasedItemColumns.PRODUCT_ID
+			+ " );";
+
+	public static final String SQL_CREATE_INDEX_PURCHASED_ITEM_ACCEPTED_USER_ID_DATE_REQUESTED = "CREATE INDEX IF NOT EXISTS "
+			+ "idx_purchased_item_accepted_user_id_date_requested ON " + PurchasedItemColumns.TABLE_NAME + " ( "
+			+ PurchasedItemColumns.ACCEPTED + ", " + PurchasedItemColumns.USER_ID + ", " + PurchasedItemColumns.DATE_REQUESTED
+			+ " );";
+
+	public static final String SQL_CREATE_INDEX_PURCHASED_ITEM_ACCEPTED_DATE_REQUESTED = "CREATE INDEX IF NOT EXISTS "
+			+ "idx_purchased_item_accepted_date_requested ON " + PurchasedItemColumns.TABLE_NAME + " ( "
+			+ PurchasedItemColumns.ACCEPTED + ", " + PurchasedItemColumns.DATE_REQUESTED
+			+ " );";
+
+	public static final String SQL_CREATE_INDEX_PRODUCT_TYPE = "CREATE INDEX IF NOT EXISTS "
+			+ "idx_product_type ON " + ProductColumns.TABLE_NAME + " ( "
+			+ ProductColumns.TYPE
+			+ " );";
+
+	// catalog page order (name_english, product_id) for keyset paging, added in version 4
+	public static final String SQL_CREATE_INDEX_PRODUCT_NAME_ENGLISH_PRODUCT_ID = "CREATE INDEX IF NOT EXISTS "
+			+ "idx_product_name_english_product_id ON " + ProductColumns.TABLE_NAME + " ( "
+			+ ProductColumns.NAME_ENGLISH + ", " + ProductColumns.PRODUCT_ID
+			+ " );";
+
+	// replaces idx_product_type, also serves ordering of type filtered pages
+	public static final String SQL_CREATE_INDEX_PRODUCT_TYPE_NAME_ENGLISH_PRODUCT_ID = "CREATE INDEX IF NOT EXISTS "
+			+ "idx_product_type_name_english_product_id ON " + ProductColumns.TABLE_NAME + " ( "
+			+ ProductColumns.TYPE + ", " + ProductColumns.NAME_ENGLISH + ", " + ProductColumns.PRODUCT_ID
+			+ " );";
+
+	public static final String SQL_DROP_INDEX_PRODUCT_TYPE = "DROP INDEX IF EXISTS idx_product_type;";
+
+	// full text index over product names, added in version 3. docid is product._id
+	// sqlite before 3.7.11 (api 16) has no IF NOT EXISTS for virtual tables, index is dropped & filled again instead
+	public static final String SQL_DROP_TABLE_PRODUCT_SEARCH = "DROP TABLE IF EXISTS " + ProductColumns.SEARCH_TABLE_NAME + ";";
+
+	public static final String SQL_CREATE_TABLE_PRODUCT_SEARCH = "CREATE VIRTUAL TABLE "
+			+ ProductColumns.SEARCH_TABLE_NAME + " USING fts4 ( "
+			+ ProductColumns.NAME_ENGLISH + ", "
+			+ ProductColumns.NAME_HINGLISH
+			+ " );";
+
+	public static final String SQL_FILL_TABLE_PRODUCT_SEARCH = "INSERT INTO "
+			+ ProductColumns.SEARCH_TABLE_NAME + " ( docid, " + ProductColumns.NAME_ENGLISH + ", " + ProductColumns.NAME_HINGLISH + " ) "
+			+ "SELECT " + ProductColumns._ID + ", " + ProductColumns.NAME_ENGLISH + ", " + ProductColumns.NAME_HINGLISH
+			+ " FROM " + ProductColumns.TABLE_NAME + ";";
+
+	// delete triggers don't fire for rows replaced by ON CONFLICT REPLACE, drop them from index before insert
+	public static final String SQL_CREATE_TRIGGER_PRODUCT_SEARCH_BEFORE_INSERT = "CREATE TRIGGER IF NOT EXISTS "
+			+ "product_search_before_insert BEFORE INSERT ON " + ProductColumns.TABLE_NAME + " BEGIN "
+			+ "DELETE FROM " + ProductColumns.SEARCH_TABLE_NAME + " WHERE docid IN ("
+			+ "SELECT " + ProductColumns._ID + " FROM " + ProductColumns.TABLE_NAME
+			+ " WHERE " + ProductColumns.PRODUCT_ID + " = new." + ProductColumns.PRODUCT_ID
+			+ " AND " + ProductColumns.NAME_ENGLISH + " = new." + ProductColumns.NAME_ENGLISH + "); "
+			+ "END;";
+
+	public static final String SQL_CREATE_TRIGGER_PRODUCT_SEARCH_AFTER_INSERT = "CREATE TRIGGER IF NOT EXISTS "
+			+ "product_search_after_insert AFTER INSERT ON " + ProductColumns.TABLE_NAME + " BEGIN "
+			+ "INSERT INTO " + ProductColumns.SEARCH_TABLE_NAME + " ( docid, " + ProductColumns.NAME_ENGLISH + ", " + ProductColumns.NAME_HINGLISH + " ) "
+			+ "VALUES (new." + ProductColumns._ID + ", new." + ProductColumns.NAME_ENGLISH + ", new." + ProductColumns.NAME_HINGLISH + "); "
+			+ "END;";
+
+	public static final String SQL_CREATE_TRIGGER_PRODUCT_SEARCH_AFTER_UPDATE = "CREATE TRIGGER IF NOT EXISTS "
+			+ "product_search_after_update AFTER UPDATE OF " + ProductColumns.NAME_ENGLISH + ", " + ProductColumns.NAME_HINGLISH
+			+ " ON " + ProductColumns.TABLE_NAME + " BEGIN "
+			+ "UPDATE " + ProductColumns.SEARCH_TABLE_NAME + " SET "
+			+ ProductColumns.NAME_ENGLISH + " = new." + ProductColumns.NAME_ENGLISH + ", "
+			+ ProductColumns.NAME_HINGLISH + " = new." + ProductColumns.NAME_HINGLISH
+			+ " WHERE docid = old." + ProductColumns._ID + "; "
+			+ "END;";
+
+	public static final String SQL_CREATE_TRIGGER_PRODUCT_SEARCH_AFTER_DELETE = "CREATE TRIGGER IF NOT EXISTS "
+			+ "product_search_after_delete AFTER DELETE ON " + ProductColumns.TABLE_NAME + " BEGIN "
+			+ "DELETE FROM " + ProductColumns.SEARCH_TABLE_NAME + " WHERE docid = old." + ProductColumns._ID + "; "
+			+ "END;";
+
 	// @formatter:on
 
 	public static DatabaseSQLiteOpenHelper getInstance(Context context) {
@@ -82,7 +161,8 @@ public class DatabaseSQLiteOpenHelper extends SQLiteOpenHelper {
 		return sInstance;
 	}
 
-	private static DatabaseSQLiteOpenHelper newInstance(Context context) {
+	// package visible so tests can open a helper per database
+	static DatabaseSQLiteOpenHelper newInstance(Context context) {
 		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
 			return newInstancePreHoneycomb(context);
 		}
@@ -117,6 +197,18 @@ public class DatabaseSQLiteOpenHelper extends SQLiteOpenHelper {
 		super(context, DATABASE_FILE_NAME, null, DATABASE_VERSION, errorHandler);
 		mContext = context;
 		mOpenHelperCallbacks = new DatabaseSQLiteOpenHelperCallbacks();
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			setWriteAheadLoggingEnabledPostJellyBean();
+		}
+	}
+
+	/**
+	 * Services write while UI thread reads, with write-ahead log readers don't wait for sync to commit.
+	 * Framework opens pooled read connections in WAL mode, pool size is decided by the platform.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void setWriteAheadLoggingEnabledPostJellyBean() {
+		setWriteAheadLoggingEnabled(true);
 	}
 
 
@@ -135,10 +227,33 @@ public class DatabaseSQLiteOpenHelper extends SQLiteOpenHelper {
 		super.onOpen(db);
 		if (!db.isReadOnly()) {
 			setForeignKeyConstraintsEnabled(db);
+			enableWriteAheadLogging(db);
 		}
 		mOpenHelperCallbacks.onOpen(mContext, db);
 	}
 
+	private void enableWriteAheadLogging(SQLiteDatabase db) {
+		boolean isEnabled;
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			isEnabled = enableWriteAheadLoggingPreJellyBean(db);
+		} else {
+			isEnabled = isWriteAheadLoggingEnabledPostJellyBean(db);
+		}
+		// in WAL mode NORMAL is still safe against app crash & avoids fsync on every commit
+		if (isEnabled)
+			db.execSQL("PRAGMA synchronous=NORMAL;");
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private boolean enableWriteAheadLoggingPreJellyBean(SQLiteDatabase db) {
+		return db.enableWriteAheadLogging();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private boolean isWriteAheadLoggingEnabledPostJellyBean(SQLiteDatabase db) {
+		return db.isWriteAheadLoggingEnabled();
+	}
+
 	private void setForeignKeyConstraintsEnabled(SQLiteDatabase db) {
 		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
 			setForeignKeyConstraintsEnabledPreJellyBean(db);
@@ -26,12 +26,13 @@ public class DatabaseSQLiteOpenHelperCallbacks {
 
 	public void onPostCreate(final Context context, final SQLiteDatabase db) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "onPostCreate");
-		// Insert your db creation code here. This is called after your tables are created.
+		// tables are created in version 1 schema, bring them to latest version
+		DatabaseMigrations.migrate(db, 1, DatabaseSQLiteOpenHelper.DATABASE_VERSION);
 	}
 
 	public void onUpgrade(final Context context, final SQLiteDatabase db, final int oldVersion, final int newVersion) {
 		if (BuildConfig.DEBUG)
 			Log.d(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
-		// Insert your upgrading code here.
+		DatabaseMigrations.migrate(db, oldVersion, newVersion);
 	}
 }
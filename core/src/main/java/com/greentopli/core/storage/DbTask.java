@@ -0,0 +1,123 @@
+package com.greentopli.core.storage;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database work on a small background pool & delivers result or failure on main thread,
+ * unless task was cancelled meanwhile.
+ */
+
+public class DbTask<T> implements Runnable {
+	private static final int THREAD_COUNT = 2;
+	private static final int KEEP_ALIVE_SECONDS = 30;
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+			THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(@NonNull final Runnable runnable) {
+			return new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, "DbTask #" + mCount.incrementAndGet());
+		}
+	});
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private final Callable<T> mWork;
+	private final Callback<T> mCallback;
+	private final Executor mResultExecutor;
+	private volatile boolean mCancelled;
+
+	DbTask(Callable<T> work, Callback<T> callback, Executor resultExecutor) {
+		mWork = work;
+		mCallback = callback;
+		mResultExecutor = resultExecutor;
+	}
+
+	public static <T> DbTask<T> execute(@NonNull Callable<T> work, @NonNull Callback<T> callback) {
+		DbTask<T> task = new DbTask<>(work, callback, MainThread.EXECUTOR);
+		EXECUTOR.execute(task);
+		return task;
+	}
+
+	@Override
+	public void run() {
+		// superseded before it got a thread
+		if (mCancelled)
+			return;
+		final T result;
+		try {
+			result = mWork.call();
+		} catch (final Exception e) {
+			mResultExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (!mCancelled)
+						mCallback.onError(e);
+				}
+			});
+			return;
+		}
+		mResultExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (!mCancelled)
+					mCallback.onResult(result);
+			}
+		});
+	}
+
+	/**
+	 * Result will not be delivered, work already running is allowed to finish.
+	 * Must be called on main thread to guarantee callback is not invoked afterwards.
+	 */
+	public void cancel() {
+		mCancelled = true;
+		EXECUTOR.remove(this);
+	}
+
+	public boolean isCancelled() {
+		return mCancelled;
+	}
+
+	/**
+	 * Methods are called on main thread, {@link #onError(Exception)} only logs unless overridden.
+	 */
+	public static abstract class Callback<T> {
+		public abstract void onResult(T result);
+
+		public void onError(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// created on first use, tests run tasks without a main looper
+	private static class MainThread {
+		private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+		static final Executor EXECUTOR = new Executor() {
+			@Override
+			public void execute(@NonNull Runnable runnable) {
+				HANDLER.post(runnable);
+			}
+		};
+	}
+}
@@ -0,0 +1,61 @@
+package com.greentopli.core.storage;
+
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+
+/**
+ * Observer of a {@link DatabaseProvider} table receiving changed rows instead of bare notifications.
+ * Notifications arriving together, eg. from one batch, are delivered as a single {@link ChangeSet}
+ * on thread of the given handler. Rows are known only for writes that asked for them with
+ * {@link com.greentopli.core.storage.base.BaseContentProvider#rowChanges(Uri)}, others arrive as table changes.
+ */
+
+public abstract class RowChangeObserver extends ContentObserver {
+	private final Handler mHandler;
+	private final long mDelayMillis;
+	private ChangeSet mPendingChanges;
+	private final Runnable mDispatch = new Runnable() {
+		@Override
+		public void run() {
+			ChangeSet changes = mPendingChanges;
+			mPendingChanges = null;
+			if (changes != null && !changes.isEmpty())
+				onRowsChanged(changes);
+		}
+	};
+
+	public RowChangeObserver(@NonNull Handler handler) {
+		this(handler, 0);
+	}
+
+	/**
+	 * @param delayMillis changes are delivered once no further change arrived for this long
+	 */
+	public RowChangeObserver(@NonNull Handler handler, long delayMillis) {
+		super(handler);
+		mHandler = handler;
+		mDelayMillis = delayMillis;
+	}
+
+	@Override
+	public void onChange(boolean selfChange) {
+		// before JellyBean uri is not provided, whole table is treated as changed
+		onChange(selfChange, null);
+	}
+
+	@Override
+	public void onChange(boolean selfChange, Uri uri) {
+		if (mPendingChanges == null)
+			mPendingChanges = new ChangeSet();
+		mPendingChanges.add(uri);
+		mHandler.removeCallbacks(mDispatch);
+		mHandler.postDelayed(mDispatch, mDelayMillis);
+	}
+
+	/**
+	 * @param changes rows changed since last call
+	 */
+	protected abstract void onRowsChanged(@NonNull ChangeSet changes);
+}
@@ -36,8 +36,10 @@ public abstract class AbstractSelection<T extends AbstractSelection<?>> {
 	private final List<String> mSelectionArgs = new ArrayList<String>(5);
 
 	private final StringBuilder mOrderBy = new StringBuilder();
+	private final List<String> mOrderByArgs = new ArrayList<String>(1);
 
 	Boolean mNotify;
+	boolean mRowChanges;
 	String mGroupBy;
 	String mHaving;
 	Integer mLimit;
@@ -276,6 +278,16 @@ public abstract class AbstractSelection<T extends AbstractSelection<?>> {
 		return mSelectionArgs.toArray(new String[size]);
 	}
 
+	/**
+	 * Returns the selection arguments followed by those of the order, to pass to a query using both.
+	 */
+	public String[] queryArgs() {
+		if (mOrderByArgs.isEmpty()) return args();
+		List<String> args = new ArrayList<String>(mSelectionArgs);
+		args.addAll(mOrderByArgs);
+		return args.toArray(new String[args.size()]);
+	}
+
 	/**
 	 * Returns the order string produced by this object.
 	 */
@@ -289,6 +301,7 @@ public abstract class AbstractSelection<T extends AbstractSelection<?>> {
 	public Uri uri() {
 		Uri uri = baseUri();
 		if (mNotify != null) uri = BaseContentProvider.notify(uri, mNotify);
+		if (mRowChanges) uri = BaseContentProvider.rowChanges(uri);
 		if (mGroupBy != null) uri = BaseContentProvider.groupBy(uri, mGroupBy);
 		if (mHaving != null) uri = BaseContentProvider.having(uri, mHaving);
 		if (mLimit != null) uri = BaseContentProvider.limit(uri, String.valueOf(mLimit));
@@ -323,6 +336,15 @@ public abstract class AbstractSelection<T extends AbstractSelection<?>> {
 		return (T) this;
 	}
 
+	/**
+	 * Reports ids of rows changed by update or delete with this selection to observers.
+	 */
+	@SuppressWarnings("unchecked")
+	public T rowChanges() {
+		mRowChanges = true;
+		return (T) this;
+	}
+
 	@SuppressWarnings("unchecked")
 	public T groupBy(String groupBy) {
 		mGroupBy = groupBy;
@@ -353,6 +375,18 @@ public abstract class AbstractSelection<T extends AbstractSelection<?>> {
 		return orderBy(order, false);
 	}
 
+	/**
+	 * Order expression with {@code ?} placeholders, bound after the selection arguments.
+	 */
+	@SuppressWarnings("unchecked")
+	public T orderByRaw(String order, Object... args) {
+		orderBy(order, false);
+		for (Object arg : args) {
+			mOrderByArgs.add(valueOf(arg));
+		}
+		return (T) this;
+	}
+
 	@SuppressWarnings("unchecked")
 	public T orderBy(String... orders) {
 		for (String order : orders) {
@@ -12,15 +12,32 @@ import android.net.Uri;
 import android.provider.BaseColumns;
 import android.util.Log;
 
+import com.greentopli.core.storage.ChangeSet;
+
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public abstract class BaseContentProvider extends ContentProvider {
 	public static final String QUERY_NOTIFY = "QUERY_NOTIFY";
 	public static final String QUERY_GROUP_BY = "QUERY_GROUP_BY";
 	public static final String QUERY_HAVING = "QUERY_HAVING";
 	public static final String QUERY_LIMIT = "QUERY_LIMIT";
+	// opt in for update & delete to read ids of affected rows first, so they are reported to observers
+	public static final String QUERY_ROW_CHANGES = "QUERY_ROW_CHANGES";
+	// comma separated ids of changed rows carried by notified table uri, eg. purchased_item?QUERY_UPDATED=12,14
+	public static final String QUERY_INSERTED = "QUERY_INSERTED";
+	public static final String QUERY_UPDATED = "QUERY_UPDATED";
+	public static final String QUERY_DELETED = "QUERY_DELETED";
+	public static final String CHANGE_INSERT = "insert";
+	public static final String CHANGE_UPDATE = "update";
+	public static final String CHANGE_DELETE = "delete";
+	// above this many rows per table notified uri carries no ids, meaning whole table may have changed
+	private static final int MAX_ROW_CHANGES = 20;
+	// bulk insert lets waiting writers in only this often, yielding commits & would cost a commit per row
+	public static final int BULK_INSERT_YIELD_ROWS = 500;
 
 	public static class QueryParams {
 		public String table;
@@ -39,6 +56,9 @@ public abstract class BaseContentProvider extends ContentProvider {
 
 	protected SQLiteOpenHelper mSqLiteOpenHelper;
 
+	// changes per table uri made by the batch running on current thread, null when no batch is running
+	private final ThreadLocal<Map<Uri, ChangeSet>> mPendingNotifications = new ThreadLocal<Map<Uri, ChangeSet>>();
+
 	@Override
 	public final boolean onCreate() {
 		if (hasDebug()) {
@@ -68,10 +88,8 @@ public abstract class BaseContentProvider extends ContentProvider {
 		String table = uri.getLastPathSegment();
 		long rowId = mSqLiteOpenHelper.getWritableDatabase().insertOrThrow(table, null, values);
 		if (rowId == -1) return null;
-		String notify;
-		if (((notify = uri.getQueryParameter(QUERY_NOTIFY)) == null || "true".equals(notify))) {
-			getContext().getContentResolver().notifyChange(uri, null);
-		}
+		// row replaced through ON CONFLICT REPLACE is not reported as deleted
+		notifyRowsChanged(uri, CHANGE_INSERT, new long[]{rowId});
 		return uri.buildUpon().appendEncodedPath(String.valueOf(rowId)).build();
 	}
 
@@ -80,12 +98,15 @@ public abstract class BaseContentProvider extends ContentProvider {
 		String table = uri.getLastPathSegment();
 		SQLiteDatabase db = mSqLiteOpenHelper.getWritableDatabase();
 		int res = 0;
+		long[] rowIds = values.length <= MAX_ROW_CHANGES ? new long[values.length] : null;
 		db.beginTransaction();
 		try {
-			for (ContentValues v : values) {
-				long id = db.insert(table, null, v);
-				db.yieldIfContendedSafely();
+			for (int i = 0; i < values.length; i++) {
+				long id = db.insert(table, null, values[i]);
+				if ((i + 1) % BULK_INSERT_YIELD_ROWS == 0)
+					db.yieldIfContendedSafely();
 				if (id != -1) {
+					if (rowIds != null) rowIds[res] = id;
 					res++;
 				}
 			}
@@ -93,10 +114,7 @@ public abstract class BaseContentProvider extends ContentProvider {
 		} finally {
 			db.endTransaction();
 		}
-		String notify;
-		if (res != 0 && ((notify = uri.getQueryParameter(QUERY_NOTIFY)) == null || "true".equals(notify))) {
-			getContext().getContentResolver().notifyChange(uri, null);
-		}
+		if (res != 0) notifyRowsChanged(uri, CHANGE_INSERT, rowIds != null ? Arrays.copyOf(rowIds, res) : null);
 
 		return res;
 	}
@@ -104,22 +122,18 @@ public abstract class BaseContentProvider extends ContentProvider {
 	@Override
 	public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
 		QueryParams queryParams = getQueryParams(uri, selection, null);
+		long[] rowIds = isRowChangesRequested(uri) ? queryRowIds(uri, queryParams, selectionArgs) : null;
 		int res = mSqLiteOpenHelper.getWritableDatabase().update(queryParams.table, values, queryParams.selection, selectionArgs);
-		String notify;
-		if (res != 0 && ((notify = uri.getQueryParameter(QUERY_NOTIFY)) == null || "true".equals(notify))) {
-			getContext().getContentResolver().notifyChange(uri, null);
-		}
+		if (res != 0) notifyRowsChanged(uri, CHANGE_UPDATE, rowIds);
 		return res;
 	}
 
 	@Override
 	public int delete(Uri uri, String selection, String[] selectionArgs) {
 		QueryParams queryParams = getQueryParams(uri, selection, null);
+		long[] rowIds = isRowChangesRequested(uri) ? queryRowIds(uri, queryParams, selectionArgs) : null;
 		int res = mSqLiteOpenHelper.getWritableDatabase().delete(queryParams.table, queryParams.selection, selectionArgs);
-		String notify;
-		if (res != 0 && ((notify = uri.getQueryParameter(QUERY_NOTIFY)) == null || "true".equals(notify))) {
-			getContext().getContentResolver().notifyChange(uri, null);
-		}
+		if (res != 0) notifyRowsChanged(uri, CHANGE_DELETE, rowIds);
 		return res;
 	}
 
@@ -149,17 +163,97 @@ public abstract class BaseContentProvider extends ContentProvider {
 		return res;
 	}
 
+	/**
+	 * Ids of rows an update or delete is going to touch, read only when asked for with {@link #rowChanges(Uri)}.
+	 *
+	 * @return null when notifications are disabled or too many rows are affected
+	 */
+	private long[] queryRowIds(Uri uri, QueryParams queryParams, String[] selectionArgs) {
+		if (!isNotifyEnabled(uri))
+			return null;
+		Cursor cursor = mSqLiteOpenHelper.getReadableDatabase().query(queryParams.table, new String[]{queryParams.idColumn},
+				queryParams.selection, selectionArgs, null, null, null, String.valueOf(MAX_ROW_CHANGES + 1));
+		try {
+			if (cursor.getCount() > MAX_ROW_CHANGES)
+				return null;
+			long[] rowIds = new long[cursor.getCount()];
+			for (int i = 0; cursor.moveToNext(); i++) {
+				rowIds[i] = cursor.getLong(0);
+			}
+			return rowIds;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private boolean isNotifyEnabled(Uri uri) {
+		String notify = uri.getQueryParameter(QUERY_NOTIFY);
+		return notify == null || "true".equals(notify);
+	}
+
+	private boolean isRowChangesRequested(Uri uri) {
+		return "true".equals(uri.getQueryParameter(QUERY_ROW_CHANGES));
+	}
+
+	/**
+	 * Notifies table uri carrying ids of changed rows, unless disabled with {@link #QUERY_NOTIFY}.
+	 * While {@link #applyBatch(ArrayList)} is running on the calling thread changes are only recorded
+	 * & sent after the batch is committed, one uri per table.
+	 *
+	 * @param rowIds changed rows, null if not known, then whole table is reported as changed
+	 */
+	protected void notifyRowsChanged(Uri uri, String change, long[] rowIds) {
+		if (!isNotifyEnabled(uri))
+			return;
+		Map<Uri, ChangeSet> pendingChanges = mPendingNotifications.get();
+		Map<Uri, ChangeSet> changes = pendingChanges != null ? pendingChanges : new LinkedHashMap<Uri, ChangeSet>();
+		Uri tableUri = getTableUri(uri);
+		ChangeSet tableChanges = changes.get(tableUri);
+		if (tableChanges == null) {
+			tableChanges = new ChangeSet();
+			changes.put(tableUri, tableChanges);
+		}
+		if (rowIds == null) {
+			tableChanges.setTableChanged();
+		} else {
+			for (long rowId : rowIds) {
+				tableChanges.addRowChange(rowId, change);
+			}
+		}
+		if (pendingChanges == null)
+			notifyChanges(changes);
+	}
+
+	/**
+	 * Sends a single notification per table, rows inserted & deleted again within a batch are not reported.
+	 */
+	private void notifyChanges(Map<Uri, ChangeSet> changes) {
+		for (Map.Entry<Uri, ChangeSet> entry : changes.entrySet()) {
+			if (!entry.getValue().isEmpty())
+				getContext().getContentResolver().notifyChange(entry.getValue().toUri(entry.getKey(), MAX_ROW_CHANGES), null);
+		}
+	}
+
+	/**
+	 * Strips query parameters & row id, so that all changes to one table share same uri.
+	 */
+	private Uri getTableUri(Uri uri) {
+		QueryParams queryParams = getQueryParams(uri, null, null);
+		return uri.buildUpon().path(queryParams.table).clearQuery().build();
+	}
+
 	@Override
 	public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
-		HashSet<Uri> urisToNotify = new HashSet<Uri>(operations.size());
-		for (ContentProviderOperation operation : operations) {
-			urisToNotify.add(operation.getUri());
-		}
+		// nested batch joins the outer transaction & notifications
+		boolean isOuterBatch = mPendingNotifications.get() == null;
+		Map<Uri, ChangeSet> changesToNotify = isOuterBatch ? new LinkedHashMap<Uri, ChangeSet>() : mPendingNotifications.get();
+		mPendingNotifications.set(changesToNotify);
 		SQLiteDatabase db = mSqLiteOpenHelper.getWritableDatabase();
+		ContentProviderResult[] results;
 		db.beginTransaction();
 		try {
 			int numOperations = operations.size();
-			ContentProviderResult[] results = new ContentProviderResult[numOperations];
+			results = new ContentProviderResult[numOperations];
 			int i = 0;
 			for (ContentProviderOperation operation : operations) {
 				results[i] = operation.apply(this, results, i);
@@ -169,13 +263,15 @@ public abstract class BaseContentProvider extends ContentProvider {
 				i++;
 			}
 			db.setTransactionSuccessful();
-			for (Uri uri : urisToNotify) {
-				getContext().getContentResolver().notifyChange(uri, null);
-			}
-			return results;
 		} finally {
 			db.endTransaction();
+			if (isOuterBatch)
+				mPendingNotifications.remove();
 		}
+		// notify only after changes are committed & visible to observers
+		if (isOuterBatch)
+			notifyChanges(changesToNotify);
+		return results;
 	}
 
 
@@ -183,6 +279,13 @@ public abstract class BaseContentProvider extends ContentProvider {
 		return uri.buildUpon().appendQueryParameter(QUERY_NOTIFY, String.valueOf(notify)).build();
 	}
 
+	/**
+	 * Asks update & delete to report ids of changed rows, at cost of reading them before writing.
+	 */
+	public static Uri rowChanges(Uri uri) {
+		return uri.buildUpon().appendQueryParameter(QUERY_ROW_CHANGES, "true").build();
+	}
+
 	public static Uri groupBy(Uri uri, String groupBy) {
 		return uri.buildUpon().appendQueryParameter(QUERY_GROUP_BY, groupBy).build();
 	}
@@ -0,0 +1,52 @@
+package com.greentopli.core.storage.helper;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Item count & subtotal of cart, kept as total price per purchased_item row so single row changes
+ * adjust the totals by their difference instead of summing whole cart again.
+ */
+
+public class CartAggregate {
+	private final Map<Long, Integer> mRowPrices = new HashMap<>();
+	private int mSubtotal;
+
+	/**
+	 * replaces all rows, used for first load & after bulk changes
+	 */
+	public void reset(@NonNull Map<Long, Integer> rowPrices) {
+		mRowPrices.clear();
+		mSubtotal = 0;
+		for (Map.Entry<Long, Integer> entry : rowPrices.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * adds row to cart or updates its price
+	 */
+	public void put(long rowId, int totalPrice) {
+		Integer previous = mRowPrices.put(rowId, totalPrice);
+		mSubtotal += totalPrice - (previous != null ? previous : 0);
+	}
+
+	/**
+	 * removes row from cart, rows not in cart are ignored
+	 */
+	public void remove(long rowId) {
+		Integer previous = mRowPrices.remove(rowId);
+		if (previous != null)
+			mSubtotal -= previous;
+	}
+
+	public int getItemCount() {
+		return mRowPrices.size();
+	}
+
+	public int getSubtotal() {
+		return mSubtotal;
+	}
+}
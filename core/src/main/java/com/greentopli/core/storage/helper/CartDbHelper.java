@@ -1,5 +1,6 @@
 package com.greentopli.core.storage.helper;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentUris;
 import android.content.Context;
 import android.net.Uri;
@@ -7,16 +8,23 @@ import android.support.annotation.NonNull;
 import android.support.v4.util.Pair;
 
 import com.greentopli.CommonUtils;
+import com.greentopli.core.storage.DatabaseProvider;
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.core.storage.product.ProductCursor;
 import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
 import com.greentopli.core.storage.purchaseditem.PurchasedItemContentValues;
 import com.greentopli.core.storage.purchaseditem.PurchasedItemCursor;
 import com.greentopli.core.storage.purchaseditem.PurchasedItemSelection;
+import com.greentopli.model.OrderHistory;
 import com.greentopli.model.Product;
 import com.greentopli.model.PurchasedItem;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by rnztx on 21/10/16.
@@ -24,6 +32,38 @@ import java.util.List;
 
 public class CartDbHelper {
 	private static String TAG = CartDbHelper.class.getSimpleName();
+	private static final String COUNT = "COUNT(*)";
+	private static final String SUM_TOTAL_PRICE = "SUM(" + PurchasedItemColumns.TOTAL_PRICE + ")";
+	private static final String CART_LINE_VOLUME = "purchased_volume";
+	// totals are summed by sqlite, package visible so tests can run same queries
+	static final String[] CART_SUBTOTAL_COLUMNS = new String[]{SUM_TOTAL_PRICE};
+	static final String[] ORDER_SUBTOTAL_COLUMNS = new String[]{COUNT, SUM_TOTAL_PRICE};
+	static final String[] ORDER_HISTORY_SUMMARY_COLUMNS = new String[]{PurchasedItemColumns.DATE_REQUESTED, COUNT, SUM_TOTAL_PRICE};
+	// purchased item & its product, columns present in both tables are qualified
+	// @formatter:off
+	private static final String[] CART_LINE_COLUMNS = new String[]{
+			PurchasedItemColumns._ID,
+			PurchasedItemColumns.PURCHASE_ID,
+			PurchasedItemColumns.USER_ID,
+			PurchasedItemColumns.TABLE_NAME + "." + PurchasedItemColumns.PRODUCT_ID + " AS " + PurchasedItemColumns.PRODUCT_ID,
+			PurchasedItemColumns.DATE_REQUESTED,
+			PurchasedItemColumns.DATE_ACCEPTED,
+			PurchasedItemColumns.ACCEPTED,
+			PurchasedItemColumns.COMPLETED,
+			PurchasedItemColumns.TABLE_NAME + "." + PurchasedItemColumns.VOLUME + " AS " + CART_LINE_VOLUME,
+			PurchasedItemColumns.TOTAL_PRICE,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.NAME_ENGLISH + " AS " + ProductColumns.NAME_ENGLISH,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.NAME_HINGLISH + " AS " + ProductColumns.NAME_HINGLISH,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.IMAGE_URL + " AS " + ProductColumns.IMAGE_URL,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.MIN_VOLUME + " AS " + ProductColumns.MIN_VOLUME,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.MAX_VOLUME + " AS " + ProductColumns.MAX_VOLUME,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.VOLUME_SET + " AS " + ProductColumns.VOLUME_SET,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.PRICE + " AS " + ProductColumns.PRICE,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.TIME + " AS " + ProductColumns.TIME,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.TYPE + " AS " + ProductColumns.TYPE,
+			ProductColumns.TABLE_NAME + "." + ProductColumns.VOLUME + " AS " + ProductColumns.VOLUME
+	};
+	// @formatter:on
 	private Context context;
 	private ProductDbHelper productDbHelper;
 	private UserDbHelper userDbHelper;
@@ -48,36 +88,29 @@ public class CartDbHelper {
 		}
 		values = getValuesFromPOJO(item);
 		Uri uri = values.insert(context.getContentResolver());
-		return ContentUris.parseId(uri);
+		long rowId = ContentUris.parseId(uri);
+		CartIndex.onCartItemAdded(rowId, item);
+		return rowId;
 	}
 
 	public int removeProductFromCart(@NonNull String product_id) {
 		PurchasedItemSelection selection = new PurchasedItemSelection();
 		selection.productId(product_id)
-				.and().accepted(false);
-		return selection.delete(context.getContentResolver());
-	}
-
-	public List<String> getProductIdsFromCart(boolean isAcceptedBySeller) {
-		return getProductIdsFromCart(isAcceptedBySeller, 0);
+				.and().accepted(false)
+				.rowChanges();
+		int deleted = selection.delete(context.getContentResolver());
+		if (deleted > 0)
+			CartIndex.onProductsRemoved(Collections.singletonList(product_id));
+		return deleted;
 	}
 
-	public List<String> getProductIdsFromCart(boolean isAcceptedBySeller, long dateRequested) {
-		List<String> list = new ArrayList<>();
+	/**
+	 * number of rows in cart
+	 */
+	public int getCartItemCount() {
 		PurchasedItemSelection selection = new PurchasedItemSelection();
-
-		if (dateRequested > 0) // products accepted by seller
-			selection.dateRequested(dateRequested).and().accepted(isAcceptedBySeller);
-		else // only added to cart
-			selection.accepted(isAcceptedBySeller);
-
-		PurchasedItemCursor cursor = selection.query(context.getContentResolver(),
-				new String[]{PurchasedItemColumns.PRODUCT_ID});
-		while (cursor.moveToNext()) {
-			list.add(cursor.getProductId());
-		}
-		cursor.close();
-		return list;
+		selection.accepted(false);
+		return selection.count(context.getContentResolver());
 	}
 
 	public boolean isProductAddedToCart(@NonNull String product_id) {
@@ -96,9 +129,40 @@ public class CartDbHelper {
 		return getProductsFromCart(acceptedBySeller, 0);
 	}
 
+	/**
+	 * Products of cart or of order requested on given date, read with single joined query.
+	 */
 	public List<Product> getProductsFromCart(boolean acceptedBySeller, long dateRequested) {
-		List<String> ids = getProductIdsFromCart(acceptedBySeller, dateRequested);
-		return productDbHelper.getProducts(ids);
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(acceptedBySeller);
+		if (dateRequested > 0)
+			selection.and().dateRequested(dateRequested);
+
+		List<Pair<Product, PurchasedItem>> lines = getCartLines(selection);
+		List<Product> products = new ArrayList<>(lines.size());
+		for (Pair<Product, PurchasedItem> line : lines) {
+			products.add(line.first);
+		}
+		return products;
+	}
+
+	/**
+	 * Purchased items along with their products, read with single joined query.
+	 */
+	private List<Pair<Product, PurchasedItem>> getCartLines(PurchasedItemSelection selection) {
+		PurchasedItemCursor cursor = selection.withProduct().query(context.getContentResolver(), CART_LINE_COLUMNS);
+		// product columns are read from same rows
+		ProductCursor productCursor = new ProductCursor(cursor);
+		int volumeIndex = cursor.getColumnIndexOrThrow(CART_LINE_VOLUME);
+		List<Pair<Product, PurchasedItem>> lines = new ArrayList<>(cursor.getCount());
+		while (cursor.moveToNext()) {
+			PurchasedItem item = getPOJOFromCursor(cursor);
+			// "volume" of joined row is product's, volume of cart line is aliased
+			item.setVolume(cursor.getInt(volumeIndex));
+			lines.add(new Pair<>(productDbHelper.getProductFromCursor(productCursor), item));
+		}
+		cursor.close();
+		return lines;
 	}
 
 	public List<PurchasedItem> getPurchasedItemList(boolean acceptedBySeller) {
@@ -141,29 +205,94 @@ public class CartDbHelper {
 		return item;
 	}
 
+	/**
+	 * every cart row, keyed by row id
+	 */
+	public Map<Long, PurchasedItem> getCartItems() {
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(false);
+		return getCartItems(selection);
+	}
+
+	/**
+	 * given rows which are still in cart, rows accepted or deleted meanwhile are left out
+	 */
+	public Map<Long, PurchasedItem> getCartItems(@NonNull long[] rowIds) {
+		if (rowIds.length == 0)
+			return new HashMap<>();
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(false).and().id(rowIds);
+		return getCartItems(selection);
+	}
+
+	private Map<Long, PurchasedItem> getCartItems(PurchasedItemSelection selection) {
+		Map<Long, PurchasedItem> items = new HashMap<>();
+		PurchasedItemCursor cursor = selection.query(context.getContentResolver(), PurchasedItemColumns.ALL_COLUMNS);
+		while (cursor.moveToNext()) {
+			items.put(cursor.getId(), getPOJOFromCursor(cursor));
+		}
+		cursor.close();
+		return items;
+	}
+
 	/**
 	 * calculates total price of cart items
 	 */
 	public int getCartSubtotal() {
-		List<PurchasedItem> purchasedItems = getPurchasedItemList(false);
+		PurchasedItemCursor cursor = getCartSubtotalSelection().query(context.getContentResolver(), CART_SUBTOTAL_COLUMNS);
 		int totalOrderPrice = 0;
-		for (PurchasedItem item : purchasedItems)
-			totalOrderPrice = totalOrderPrice + item.getTotalPrice();
+		if (cursor.moveToFirst())
+			totalOrderPrice = cursor.getInt(0);
+		cursor.close();
 		return totalOrderPrice;
 	}
 
 	/**
-	 * get order subtotal for given date
+	 * total price of every cart row, keyed by row id
 	 */
-	public Pair<Integer, Integer> getOrderSubtotal(long dateOfOrder) {
-		List<PurchasedItem> purchasedItems = getPurchasedItemList(true, dateOfOrder);
-		int totalOrderPrice = 0;
+	public Map<Long, Integer> getCartRowPrices() {
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(false);
+		return getCartRowPrices(selection);
+	}
+
+	/**
+	 * total price of given rows which are still in cart, rows accepted or deleted meanwhile are left out
+	 */
+	public Map<Long, Integer> getCartRowPrices(@NonNull long[] rowIds) {
+		if (rowIds.length == 0)
+			return new HashMap<>();
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(false).and().id(rowIds);
+		return getCartRowPrices(selection);
+	}
 
-		for (PurchasedItem item : purchasedItems)
-			totalOrderPrice = totalOrderPrice + item.getTotalPrice();
+	private Map<Long, Integer> getCartRowPrices(PurchasedItemSelection selection) {
+		Map<Long, Integer> rowPrices = new HashMap<>();
+		PurchasedItemCursor cursor = selection.query(context.getContentResolver(),
+				new String[]{PurchasedItemColumns._ID, PurchasedItemColumns.TOTAL_PRICE});
+		while (cursor.moveToNext()) {
+			rowPrices.put(cursor.getId(), cursor.getTotalPrice());
+		}
+		cursor.close();
+		return rowPrices;
+	}
 
-		Pair<Integer, Integer> countSubtotalPair = new Pair<>(purchasedItems.size(), totalOrderPrice);
-		return countSubtotalPair;
+	/**
+	 * get order subtotal for given date
+	 *
+	 * @return item count & total price in pair
+	 */
+	public Pair<Integer, Integer> getOrderSubtotal(long dateOfOrder) {
+		PurchasedItemCursor cursor = getOrderSubtotalSelection(dateOfOrder)
+				.query(context.getContentResolver(), ORDER_SUBTOTAL_COLUMNS);
+		int count = 0, totalOrderPrice = 0;
+		if (cursor.moveToFirst()) {
+			count = cursor.getInt(0);
+			totalOrderPrice = cursor.getInt(1);
+		}
+		cursor.close();
+		return new Pair<>(count, totalOrderPrice);
 	}
 
 	private PurchasedItem getPOJOFromCursor(PurchasedItemCursor cursor) {
@@ -194,23 +323,53 @@ public class CartDbHelper {
 		return values;
 	}
 
-	public void storeOrderHistory(@NonNull List<PurchasedItem> purchasedItems) {
-		// delete all orders except from cart order
-		PurchasedItemSelection selection = new PurchasedItemSelection();
-		selection.accepted(true);
-		selection.delete(context);
-
-		for (PurchasedItem item : purchasedItems) {
+	/**
+	 * Brings order history (all accepted items) in line with {@code purchasedItems}, writing only
+	 * rows that differ in a single batch. Observers are notified once, if anything changed.
+	 *
+	 * @return what was changed, null if writing failed
+	 */
+	public OrderHistoryMerge storeOrderHistory(@NonNull List<PurchasedItem> purchasedItems) {
+		OrderHistoryMerge merge = OrderHistoryMerge.compute(getPurchasedItemList(true), purchasedItems);
+		if (!merge.hasChanges())
+			return merge;
+
+		ArrayList<ContentProviderOperation> operations = new ArrayList<>(
+				merge.getInsertedCount() + merge.getUpdatedCount() + merge.getRemovedCount());
+		for (PurchasedItem item : merge.getInserted()) {
 			PurchasedItemContentValues values = getValuesFromPOJO(item);
-			Uri uri = values.insert(context);
-			ContentUris.parseId(uri);
+			operations.add(ContentProviderOperation.newInsert(values.uri())
+					.withValues(values.values())
+					.build());
+		}
+		for (PurchasedItem item : merge.getUpdated()) {
+			PurchasedItemSelection where = new PurchasedItemSelection();
+			where.purchaseId(item.getOrderId()).and().accepted(true);
+			operations.add(ContentProviderOperation.newUpdate(where.uri())
+					.withSelection(where.sel(), where.args())
+					.withValues(getValuesFromPOJO(item).values())
+					.build());
+		}
+		for (String purchaseId : merge.getRemovedIds()) {
+			PurchasedItemSelection where = new PurchasedItemSelection();
+			where.purchaseId(purchaseId).and().accepted(true);
+			operations.add(ContentProviderOperation.newDelete(where.uri())
+					.withSelection(where.sel(), where.args())
+					.build());
 		}
+		return DatabaseProvider.applyBatch(context, operations) != null ? merge : null;
 	}
 
 	public int updateVolume(@NonNull String product_id, @NonNull int updated_volume) {
 		PurchasedItemSelection where = new PurchasedItemSelection();
-		where.productId(product_id).and().accepted(false);
+		where.productId(product_id).and().accepted(false).rowChanges();
 
+		PurchasedItemContentValues values = getVolumeValues(product_id, updated_volume);
+		// index picks up changed row from notification
+		return context.getContentResolver().update(where.uri(), values.values(), where.sel(), where.args());
+	}
+
+	private PurchasedItemContentValues getVolumeValues(@NonNull String product_id, int updated_volume) {
 		PurchasedItemContentValues values = new PurchasedItemContentValues();
 		values.putVolume(updated_volume);
 
@@ -221,49 +380,149 @@ public class CartDbHelper {
 			);
 			values.putTotalPrice(price);
 		}
-		return values.update(context, where);
+		return values;
 	}
 
 	public int clearCartItems() {
 		PurchasedItemSelection allItems = new PurchasedItemSelection();
 		allItems.accepted(false);
-		return allItems.delete(context);
+		int deleted = allItems.delete(context);
+		CartIndex.onCartCleared();
+		return deleted;
+	}
+
+	/**
+	 * Removes given products from cart in single batch.
+	 */
+	public boolean removeProductsFromCart(@NonNull List<String> productIds) {
+		ArrayList<ContentProviderOperation> operations = new ArrayList<>(productIds.size());
+		for (String productId : productIds) {
+			PurchasedItemSelection selection = new PurchasedItemSelection();
+			selection.productId(productId).and().accepted(false).rowChanges();
+			operations.add(ContentProviderOperation.newDelete(selection.uri())
+					.withSelection(selection.sel(), selection.args())
+					.build());
+		}
+		boolean removed = DatabaseProvider.applyBatch(context, operations) != null;
+		if (removed)
+			CartIndex.onProductsRemoved(productIds);
+		return removed;
+	}
+
+	/**
+	 * Updates volume & price of several cart items in single batch.
+	 *
+	 * @param productVolumes product id & updated volume
+	 */
+	public boolean updateVolumes(@NonNull Map<String, Integer> productVolumes) {
+		ArrayList<ContentProviderOperation> operations = new ArrayList<>(productVolumes.size());
+		for (Map.Entry<String, Integer> entry : productVolumes.entrySet()) {
+			PurchasedItemSelection where = new PurchasedItemSelection();
+			where.productId(entry.getKey()).and().accepted(false).rowChanges();
+			PurchasedItemContentValues values = getVolumeValues(entry.getKey(), entry.getValue());
+			operations.add(ContentProviderOperation.newUpdate(where.uri())
+					.withSelection(where.sel(), where.args())
+					.withValues(values.values())
+					.build());
+		}
+		// volumes are in index already, written by CartWriteBuffer
+		return DatabaseProvider.applyBatch(context, operations) != null;
 	}
 
 	public int removeCartItem(String id) {
 		PurchasedItemSelection selection = new PurchasedItemSelection();
-		selection.purchaseId(id).and().accepted(false);
+		selection.purchaseId(id).and().accepted(false).rowChanges();
+		// index picks up deleted row from notification
 		return selection.delete(context);
 	}
 
-	// returns Date & price in pair
-	public HashMap<Long, Integer> getOrderHistoryDates(String userId) {
-		// pairing - order Date & total price
-		HashMap<Long, Integer> pair = new HashMap<>();
-		List<PurchasedItem> list = new ArrayList<>();
+	/**
+	 * Page of order history, latest order first. Loaded with two queries regardless of page size:
+	 * order totals grouped by date & lines of those orders along with their products.
+	 *
+	 * @param beforeDate only orders requested before this date, 0 for latest orders
+	 * @param pageSize   maximum number of orders
+	 */
+	public List<OrderHistory> getOrderHistory(String userId, long beforeDate, int pageSize) {
+		List<OrderHistory> orders = getOrderHistorySummary(userId, beforeDate, pageSize);
+		if (orders.isEmpty())
+			return orders;
 
-		// get accepted Purchased Items
 		PurchasedItemSelection selection = new PurchasedItemSelection();
-		selection.accepted(true).and().userId(userId);
-		PurchasedItemCursor cursor = selection.query(context, PurchasedItemColumns.ALL_COLUMNS);
+		selection.accepted(true).and().userId(userId)
+				.and().dateRequestedGtEq(orders.get(orders.size() - 1).getOrderDate());
+		if (beforeDate > 0)
+			selection.and().dateRequestedLt(beforeDate);
+		selection.orderByDateRequested(true).orderById();
+
+		// both lists are ordered by date, walk them together
+		Iterator<OrderHistory> orderIterator = orders.iterator();
+		OrderHistory order = orderIterator.next();
+		for (Pair<Product, PurchasedItem> line : getCartLines(selection)) {
+			while (order.getOrderDate() > line.second.getDateRequested() && orderIterator.hasNext())
+				order = orderIterator.next();
+			// line of order placed between both queries
+			if (order.getOrderDate() != line.second.getDateRequested())
+				continue;
+			order.getProducts().add(line.first);
+			order.getPurchasedItems().add(line.second);
+		}
+
+		// drop orders whose products are not available any more
+		Iterator<OrderHistory> iterator = orders.iterator();
+		while (iterator.hasNext()) {
+			OrderHistory orderHistory = iterator.next();
+			orderHistory.setTotalItems(orderHistory.getProducts().size());
+			if (orderHistory.getProducts().isEmpty())
+				iterator.remove();
+		}
+		return orders;
+	}
+
+	/**
+	 * Orders of user grouped by request date, latest first.
+	 * Only totals are filled, products are not loaded.
+	 */
+	public List<OrderHistory> getOrderHistorySummary(String userId) {
+		return getOrderHistorySummary(userId, 0, 0);
+	}
+
+	private List<OrderHistory> getOrderHistorySummary(String userId, long beforeDate, int limit) {
+		PurchasedItemCursor cursor = getOrderHistorySummarySelection(userId, beforeDate, limit)
+				.query(context.getContentResolver(), ORDER_HISTORY_SUMMARY_COLUMNS);
+
+		List<OrderHistory> orders = new ArrayList<>(cursor.getCount());
 		while (cursor.moveToNext()) {
-			list.add(getPOJOFromCursor(cursor));
+			OrderHistory order = new OrderHistory(userId, cursor.getLong(0));
+			order.setTotalItems(cursor.getInt(1));
+			order.setTotalPrice(cursor.getInt(2));
+			orders.add(order);
 		}
 		cursor.close();
+		return orders;
+	}
 
-		// Calculate price
-		for (PurchasedItem item : list) {
-			long dateRequested = item.getDateRequested();
-			int price = item.getTotalPrice();
-
-			if (pair.containsKey(dateRequested)) {
-				int priceSum = pair.get(dateRequested) + price;
-				pair.put(dateRequested, priceSum);
-			} else {
-				pair.put(dateRequested, price);
-			}
-		}
+	static PurchasedItemSelection getCartSubtotalSelection() {
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(false);
+		return selection;
+	}
+
+	static PurchasedItemSelection getOrderSubtotalSelection(long dateOfOrder) {
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(true).and().dateRequested(dateOfOrder);
+		return selection;
+	}
 
-		return pair;
+	static PurchasedItemSelection getOrderHistorySummarySelection(String userId, long beforeDate, int limit) {
+		PurchasedItemSelection selection = new PurchasedItemSelection();
+		selection.accepted(true).and().userId(userId);
+		if (beforeDate > 0)
+			selection.and().dateRequestedLt(beforeDate);
+		selection.groupBy(PurchasedItemColumns.DATE_REQUESTED);
+		selection.orderByDateRequested(true);
+		if (limit > 0)
+			selection.limit(limit);
+		return selection;
 	}
 }
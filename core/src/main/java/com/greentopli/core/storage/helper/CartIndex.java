@@ -0,0 +1,291 @@
+package com.greentopli.core.storage.helper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.greentopli.core.storage.ChangeSet;
+import com.greentopli.core.storage.RowChangeObserver;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
+import com.greentopli.model.PurchasedItem;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory copy of cart lines keyed by product id, so lists can check cart state while binding
+ * without querying database. Cart is loaded on a background thread & kept current with row changes
+ * of purchased_item, writes of CartDbHelper are applied right away. Until first load is done reads
+ * fall back to database, so a product in cart is never taken as missing & added twice.
+ * Listeners are told when cart is loaded or changed.
+ */
+
+public class CartIndex {
+	private static CartIndex sInstance;
+	private final Map<String, PurchasedItem> mCartItems = new HashMap<>();
+	// product of each cart row, row changes carry only row ids
+	private final Map<Long, String> mRowProducts = new HashMap<>();
+	private final CartDbHelper mCartDbHelper;
+	private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+	private boolean mLoaded;
+	private Handler mMainHandler;
+	private final Runnable mNotifyListeners = new Runnable() {
+		@Override
+		public void run() {
+			for (Listener listener : mListeners) {
+				listener.onCartIndexChanged();
+			}
+		}
+	};
+
+	CartIndex(CartDbHelper cartDbHelper) {
+		mCartDbHelper = cartDbHelper;
+	}
+
+	public static synchronized CartIndex getInstance(@NonNull Context context) {
+		if (sInstance == null) {
+			Context appContext = context.getApplicationContext();
+			sInstance = new CartIndex(new CartDbHelper(appContext));
+			sInstance.start(appContext);
+		}
+		return sInstance;
+	}
+
+	private void start(Context appContext) {
+		mMainHandler = new Handler(Looper.getMainLooper());
+		HandlerThread thread = new HandlerThread(CartIndex.class.getSimpleName());
+		thread.start();
+		Handler handler = new Handler(thread.getLooper());
+		// changes of other writers, e.g. other process or order history, arrive here
+		appContext.getContentResolver().registerContentObserver(
+				PurchasedItemColumns.CONTENT_URI, true, new RowChangeObserver(handler) {
+					@Override
+					protected void onRowsChanged(@NonNull ChangeSet changes) {
+						if (changes.isTableChanged())
+							reload();
+						else
+							applyChanges(changes);
+					}
+				});
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				reload();
+			}
+		});
+	}
+
+	public void addListener(@NonNull Listener listener) {
+		mListeners.add(listener);
+	}
+
+	public void removeListener(@NonNull Listener listener) {
+		mListeners.remove(listener);
+	}
+
+	public synchronized boolean isLoaded() {
+		return mLoaded;
+	}
+
+	public boolean isProductAddedToCart(@NonNull String productId) {
+		synchronized (this) {
+			if (mLoaded)
+				return mCartItems.containsKey(productId);
+		}
+		return mCartDbHelper.isProductAddedToCart(productId);
+	}
+
+	/**
+	 * @return copy of cart line of product, empty item if product is not in cart
+	 */
+	public PurchasedItem getCartItem(@NonNull String productId) {
+		synchronized (this) {
+			if (mLoaded) {
+				// lines are changed in place by volume updates, callers get their own copy
+				PurchasedItem item = mCartItems.get(productId);
+				return item != null ? copyOf(item) : new PurchasedItem();
+			}
+		}
+		return mCartDbHelper.getCartItem(productId, false);
+	}
+
+	public int getItemCount() {
+		synchronized (this) {
+			if (mLoaded)
+				return mCartItems.size();
+		}
+		return mCartDbHelper.getCartItemCount();
+	}
+
+	/**
+	 * Called by CartDbHelper after adding product to cart, observers are notified asynchronously
+	 * so index must not wait for them.
+	 */
+	static void onCartItemAdded(long rowId, PurchasedItem item) {
+		CartIndex index = getExistingInstance();
+		if (index != null && index.putCartItem(rowId, item))
+			index.notifyListeners();
+	}
+
+	/**
+	 * Called by CartDbHelper after removing products from cart.
+	 */
+	static void onProductsRemoved(Collection<String> productIds) {
+		CartIndex index = getExistingInstance();
+		if (index != null && index.removeProducts(productIds))
+			index.notifyListeners();
+	}
+
+	/**
+	 * Called by CartDbHelper after all cart items are removed.
+	 */
+	static void onCartCleared() {
+		CartIndex index = getExistingInstance();
+		if (index != null && index.clear())
+			index.notifyListeners();
+	}
+
+	private static synchronized CartIndex getExistingInstance() {
+		return sInstance;
+	}
+
+	/**
+	 * Applies volume & price of a change not written to database yet, products not in cart are ignored.
+	 */
+	synchronized void setCartItemVolume(PurchasedItem change) {
+		PurchasedItem item = mCartItems.get(change.getProductId());
+		if (item != null) {
+			item.setVolume(change.getVolume());
+			item.setTotalPrice(change.getTotalPrice());
+		}
+	}
+
+	/**
+	 * @param cartItems all cart rows keyed by row id
+	 */
+	synchronized void setCartItems(Map<Long, PurchasedItem> cartItems) {
+		mCartItems.clear();
+		mRowProducts.clear();
+		for (Map.Entry<Long, PurchasedItem> entry : cartItems.entrySet()) {
+			putCartItem(entry.getKey(), entry.getValue());
+		}
+		mLoaded = true;
+	}
+
+	/**
+	 * @param queriedRows  rows read again as they were inserted or updated, those missing from
+	 *                     {@code changedRows} have left the cart
+	 * @param changedRows  current content of queried rows still in cart
+	 * @param deletedRows  rows deleted
+	 * @return whether cart state changed
+	 */
+	synchronized boolean applyRowChanges(Collection<Long> queriedRows, Map<Long, PurchasedItem> changedRows,
+	                                     Collection<Long> deletedRows) {
+		boolean changed = false;
+		for (long rowId : deletedRows) {
+			changed |= removeRow(rowId);
+		}
+		for (long rowId : queriedRows) {
+			PurchasedItem item = changedRows.get(rowId);
+			changed |= item != null ? putCartItem(rowId, item) : removeRow(rowId);
+		}
+		return changed;
+	}
+
+	synchronized boolean putCartItem(long rowId, PurchasedItem item) {
+		PurchasedItem previous = mCartItems.put(item.getProductId(), item);
+		String previousProduct = mRowProducts.put(rowId, item.getProductId());
+		if (previousProduct != null && !previousProduct.equals(item.getProductId()))
+			mCartItems.remove(previousProduct);
+		return previous == null || previous.getVolume() != item.getVolume()
+				|| previous.getTotalPrice() != item.getTotalPrice();
+	}
+
+	synchronized boolean removeProducts(Collection<String> productIds) {
+		boolean changed = false;
+		for (String productId : productIds) {
+			changed |= mCartItems.remove(productId) != null;
+		}
+		Iterator<String> rowProducts = mRowProducts.values().iterator();
+		while (rowProducts.hasNext()) {
+			if (productIds.contains(rowProducts.next()))
+				rowProducts.remove();
+		}
+		return changed;
+	}
+
+	synchronized boolean clear() {
+		boolean changed = !mCartItems.isEmpty();
+		mCartItems.clear();
+		mRowProducts.clear();
+		return changed;
+	}
+
+	private static PurchasedItem copyOf(PurchasedItem item) {
+		PurchasedItem copy = new PurchasedItem();
+		copy.setOrderId(item.getOrderId());
+		copy.setUserId(item.getUserId());
+		copy.setProductId(item.getProductId());
+		copy.setDateRequested(item.getDateRequested());
+		copy.setDateCompleted(item.getDateCompleted());
+		copy.setAccepted(item.isAccepted());
+		copy.setCompleted(item.isCompleted());
+		copy.setVolume(item.getVolume());
+		copy.setTotalPrice(item.getTotalPrice());
+		return copy;
+	}
+
+	private boolean removeRow(long rowId) {
+		String productId = mRowProducts.remove(rowId);
+		return productId != null && mCartItems.remove(productId) != null;
+	}
+
+	/**
+	 * Reads whole cart on background thread & swaps it in.
+	 */
+	private void reload() {
+		setCartItems(mCartDbHelper.getCartItems());
+		CartWriteBuffer.applyPendingChanges(this);
+		notifyListeners();
+	}
+
+	/**
+	 * Reads only inserted & updated rows on background thread.
+	 */
+	private void applyChanges(ChangeSet changes) {
+		Set<Long> queriedRows = new LinkedHashSet<>(changes.getInserted());
+		queriedRows.addAll(changes.getUpdated());
+		long[] rowIds = new long[queriedRows.size()];
+		int i = 0;
+		for (long rowId : queriedRows) {
+			rowIds[i++] = rowId;
+		}
+		boolean changed = applyRowChanges(queriedRows, mCartDbHelper.getCartItems(rowIds), changes.getDeleted());
+		// volumes not written yet win over rows read from database
+		CartWriteBuffer.applyPendingChanges(this);
+		if (changed)
+			notifyListeners();
+	}
+
+	private void notifyListeners() {
+		if (mMainHandler != null) {
+			mMainHandler.removeCallbacks(mNotifyListeners);
+			mMainHandler.post(mNotifyListeners);
+		}
+	}
+
+	/**
+	 * Called on main thread once cart is loaded & whenever it changed afterwards.
+	 */
+	public interface Listener {
+		void onCartIndexChanged();
+	}
+}
@@ -0,0 +1,193 @@
+package com.greentopli.core.storage.helper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.greentopli.CommonUtils;
+import com.greentopli.core.storage.DbTask;
+import com.greentopli.model.Product;
+import com.greentopli.model.PurchasedItem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Holds volume changes of cart items made with volume controls & writes them later in one batch,
+ * so repeated +/- taps cost a single database write. Changes are visible through {@link CartIndex}
+ * right away. Pending changes are written once no change arrived for {@link #QUIET_MILLIS},
+ * or when {@link #flush()} is called, which must happen before cart is read from database
+ * for checkout. When cart screen is left {@link #flushInBackground()} writes them without waiting.
+ */
+
+public class CartWriteBuffer {
+	static final long QUIET_MILLIS = 500;
+	private static CartWriteBuffer sInstance;
+	private final CartDbHelper mCartDbHelper;
+	private final CartIndex mCartIndex;
+	private final Scheduler mScheduler;
+	private final Executor mBackground;
+	// latest volume & price keyed by product id
+	private final Map<String, PurchasedItem> mPending = new LinkedHashMap<>();
+	// taken from pending by running flush, still not in database
+	private final Map<String, PurchasedItem> mFlushing = new LinkedHashMap<>();
+	private final Object mFlushLock = new Object();
+	private final Runnable mFlush = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+	private final Runnable mFlushAfterQuietPeriod = new Runnable() {
+		@Override
+		public void run() {
+			flushInBackground();
+		}
+	};
+
+	CartWriteBuffer(CartDbHelper cartDbHelper, CartIndex cartIndex, Scheduler scheduler, Executor background) {
+		mCartDbHelper = cartDbHelper;
+		mCartIndex = cartIndex;
+		mScheduler = scheduler;
+		mBackground = background;
+	}
+
+	public static synchronized CartWriteBuffer getInstance(@NonNull Context context) {
+		if (sInstance == null) {
+			Context appContext = context.getApplicationContext();
+			final Handler handler = new Handler(Looper.getMainLooper());
+			Scheduler scheduler = new Scheduler() {
+				@Override
+				public void postDelayed(Runnable runnable, long delayMillis) {
+					handler.postDelayed(runnable, delayMillis);
+				}
+
+				@Override
+				public void removeCallbacks(Runnable runnable) {
+					handler.removeCallbacks(runnable);
+				}
+			};
+			// not bound to any view, pending changes are written even if screen goes away
+			Executor background = new Executor() {
+				@Override
+				public void execute(@NonNull final Runnable runnable) {
+					DbTask.execute(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							runnable.run();
+							return null;
+						}
+					}, new DbTask.Callback<Void>() {
+						@Override
+						public void onResult(Void result) {
+						}
+					});
+				}
+			};
+			sInstance = new CartWriteBuffer(new CartDbHelper(appContext), CartIndex.getInstance(appContext),
+					scheduler, background);
+		}
+		return sInstance;
+	}
+
+	/**
+	 * Updates volume & price of cart item in memory, database is updated after a quiet period.
+	 * Must be called on main thread.
+	 */
+	public void updateVolume(@NonNull Product product, int volume) {
+		PurchasedItem change = new PurchasedItem();
+		change.setProductId(product.getId());
+		change.setVolume(volume);
+		change.setTotalPrice(CommonUtils.calculatePrice(product.getPrice(), product.getMinimumVolume(), volume));
+		synchronized (this) {
+			mPending.put(product.getId(), change);
+		}
+		// outside of own lock, CartIndex calls back into buffer while reloading
+		mCartIndex.setCartItemVolume(change);
+		mScheduler.removeCallbacks(mFlushAfterQuietPeriod);
+		mScheduler.postDelayed(mFlushAfterQuietPeriod, QUIET_MILLIS);
+	}
+
+	public synchronized boolean hasPendingChanges() {
+		return !mPending.isEmpty() || !mFlushing.isEmpty();
+	}
+
+	/**
+	 * Writes pending volume changes on background thread right away, without waiting for quiet period.
+	 * Safe to call on main thread, e.g. when cart screen is left.
+	 */
+	public void flushInBackground() {
+		mScheduler.removeCallbacks(mFlushAfterQuietPeriod);
+		mBackground.execute(mFlush);
+	}
+
+	/**
+	 * Writes pending volume changes in one batch on calling thread, waits for flush already running.
+	 *
+	 * @return false if changes could not be written
+	 */
+	public boolean flush() {
+		mScheduler.removeCallbacks(mFlushAfterQuietPeriod);
+		synchronized (mFlushLock) {
+			Map<String, Integer> volumes = new LinkedHashMap<>();
+			synchronized (this) {
+				if (mPending.isEmpty())
+					return true;
+				mFlushing.putAll(mPending);
+				mPending.clear();
+				for (PurchasedItem change : mFlushing.values()) {
+					volumes.put(change.getProductId(), change.getVolume());
+				}
+			}
+			boolean written = writeVolumes(volumes);
+			synchronized (this) {
+				if (!written) {
+					// put back unless changed again meanwhile
+					for (Map.Entry<String, PurchasedItem> entry : mFlushing.entrySet()) {
+						if (!mPending.containsKey(entry.getKey()))
+							mPending.put(entry.getKey(), entry.getValue());
+					}
+				}
+				mFlushing.clear();
+			}
+			return written;
+		}
+	}
+
+	boolean writeVolumes(Map<String, Integer> volumes) {
+		return mCartDbHelper.updateVolumes(volumes);
+	}
+
+	/**
+	 * Called by CartIndex after reading rows from database, so changes not written yet are not lost.
+	 */
+	static void applyPendingChanges(CartIndex cartIndex) {
+		Map<String, PurchasedItem> changes;
+		synchronized (CartWriteBuffer.class) {
+			if (sInstance == null)
+				return;
+			changes = sInstance.getPendingChanges();
+		}
+		for (PurchasedItem change : changes.values()) {
+			cartIndex.setCartItemVolume(change);
+		}
+	}
+
+	private synchronized Map<String, PurchasedItem> getPendingChanges() {
+		Map<String, PurchasedItem> changes = new LinkedHashMap<>(mFlushing);
+		changes.putAll(mPending);
+		return changes;
+	}
+
+	/**
+	 * Delays writes until changes stop, main thread handler outside of tests.
+	 */
+	interface Scheduler {
+		void postDelayed(Runnable runnable, long delayMillis);
+
+		void removeCallbacks(Runnable runnable);
+	}
+}
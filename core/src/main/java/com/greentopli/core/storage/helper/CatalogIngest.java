@@ -0,0 +1,91 @@
+package com.greentopli.core.storage.helper;
+
+import android.support.annotation.NonNull;
+
+import com.greentopli.core.remote.ProductStreamReader;
+import com.greentopli.model.Product;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replaces catalog with products arriving in chunks while response is still being read. Each chunk
+ * is written in its own batch on a writer thread while next one is parsed, at most one chunk waits
+ * for the writer. Products not present in new catalog are removed by {@link #finish()}, an
+ * interrupted download therefore leaves old & new products, never a partial catalog.
+ */
+
+public class CatalogIngest implements ProductStreamReader.ChunkListener {
+	private final ProductDbHelper mProductDbHelper;
+	private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+	// rows up to this id were stored before ingest started
+	private final long mLastOldRowId;
+	private Future<Boolean> mPendingWrite;
+	private long mLatestProductTime;
+
+	public CatalogIngest(@NonNull ProductDbHelper productDbHelper) {
+		mProductDbHelper = productDbHelper;
+		mLastOldRowId = productDbHelper.getLastRowId();
+	}
+
+	@Override
+	public void onChunk(@NonNull final List<Product> products) throws IOException {
+		for (Product product : products) {
+			mLatestProductTime = Math.max(mLatestProductTime, product.getTime());
+		}
+		awaitPendingWrite();
+		mPendingWrite = mWriter.submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return mProductDbHelper.storeProductUpdates(products, Collections.<String>emptyList());
+			}
+		});
+	}
+
+	/**
+	 * Waits for last chunk & removes products which were not part of new catalog.
+	 */
+	public void finish() throws IOException {
+		try {
+			awaitPendingWrite();
+			if (!mProductDbHelper.removeProductsUpTo(mLastOldRowId))
+				throw new IOException("Old products could not be removed");
+		} finally {
+			mWriter.shutdown();
+		}
+	}
+
+	/**
+	 * @return largest {@link Product#getTime()} of catalog read so far, a high-water mark for
+	 * incremental sync only once {@link #finish()} succeeded
+	 */
+	public long getLatestProductTime() {
+		return mLatestProductTime;
+	}
+
+	/**
+	 * Stops writing, chunks stored already are kept.
+	 */
+	public void abort() {
+		mWriter.shutdownNow();
+	}
+
+	private void awaitPendingWrite() throws IOException {
+		if (mPendingWrite == null)
+			return;
+		try {
+			if (!mPendingWrite.get())
+				throw new IOException("Products could not be stored");
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IOException(e);
+		} finally {
+			mPendingWrite = null;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.greentopli.core.storage.helper;
+
+import android.support.annotation.NonNull;
+
+import com.greentopli.model.PurchasedItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between stored order history & history received from server, matched by purchase id.
+ * Only rows in here need to be written to bring local history up to date.
+ */
+
+public class OrderHistoryMerge {
+	private final List<PurchasedItem> mInserted = new ArrayList<>();
+	private final List<PurchasedItem> mUpdated = new ArrayList<>();
+	private final List<String> mRemovedIds = new ArrayList<>();
+	private int mUnchangedCount;
+
+	private OrderHistoryMerge() {
+	}
+
+	public static OrderHistoryMerge compute(@NonNull List<PurchasedItem> local, @NonNull List<PurchasedItem> incoming) {
+		OrderHistoryMerge merge = new OrderHistoryMerge();
+		Map<String, PurchasedItem> localItems = new HashMap<>(local.size());
+		for (PurchasedItem item : local) {
+			localItems.put(item.getOrderId(), item);
+		}
+		// last one wins if server sends same item twice
+		Map<String, PurchasedItem> incomingItems = new LinkedHashMap<>(incoming.size());
+		for (PurchasedItem item : incoming) {
+			incomingItems.put(item.getOrderId(), item);
+		}
+
+		for (PurchasedItem item : incomingItems.values()) {
+			PurchasedItem stored = localItems.remove(item.getOrderId());
+			if (stored == null)
+				merge.mInserted.add(item);
+			else if (isSame(stored, item))
+				merge.mUnchangedCount++;
+			else
+				merge.mUpdated.add(item);
+		}
+		// left over are gone from server
+		merge.mRemovedIds.addAll(localItems.keySet());
+		return merge;
+	}
+
+	private static boolean isSame(PurchasedItem a, PurchasedItem b) {
+		return equal(a.getUserId(), b.getUserId())
+				&& equal(a.getProductId(), b.getProductId())
+				&& a.getDateRequested() == b.getDateRequested()
+				&& a.getDateCompleted() == b.getDateCompleted()
+				&& a.isAccepted() == b.isAccepted()
+				&& a.isCompleted() == b.isCompleted()
+				&& a.getVolume() == b.getVolume()
+				&& a.getTotalPrice() == b.getTotalPrice();
+	}
+
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	List<PurchasedItem> getInserted() {
+		return mInserted;
+	}
+
+	List<PurchasedItem> getUpdated() {
+		return mUpdated;
+	}
+
+	List<String> getRemovedIds() {
+		return mRemovedIds;
+	}
+
+	public int getInsertedCount() {
+		return mInserted.size();
+	}
+
+	public int getUpdatedCount() {
+		return mUpdated.size();
+	}
+
+	public int getUnchangedCount() {
+		return mUnchangedCount;
+	}
+
+	public int getRemovedCount() {
+		return mRemovedIds.size();
+	}
+
+	public boolean hasChanges() {
+		return !mInserted.isEmpty() || !mUpdated.isEmpty() || !mRemovedIds.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("inserted %d, updated %d, unchanged %d, removed %d",
+				getInsertedCount(), getUpdatedCount(), getUnchangedCount(), getRemovedCount());
+	}
+}
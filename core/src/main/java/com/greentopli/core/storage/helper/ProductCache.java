@@ -0,0 +1,118 @@
+package com.greentopli.core.storage.helper;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Products read by ProductDbHelper, by id & by list query (whole catalog, type, page).
+ * Catalog changes only on sync, so whole cache is dropped on any product table change.
+ */
+
+public class ProductCache {
+	private static final int MAX_PRODUCTS = 500;
+	// sum of list sizes
+	private static final int MAX_LIST_PRODUCTS = 2000;
+	private static ProductCache sInstance;
+	private final LruCache<String, Product> mProducts = new LruCache<>(MAX_PRODUCTS);
+	private final LruCache<String, List<Product>> mLists = new LruCache<String, List<Product>>(MAX_LIST_PRODUCTS) {
+		@Override
+		protected int sizeOf(String key, List<Product> value) {
+			// empty lists are cached as well
+			return value.size() + 1;
+		}
+	};
+	// incremented by every invalidation, so result of query running meanwhile is not cached
+	private int mGeneration;
+
+	ProductCache() {
+	}
+
+	public static synchronized ProductCache getInstance(@NonNull Context context) {
+		if (sInstance == null) {
+			sInstance = new ProductCache();
+			// changes made outside ProductDbHelper (e.g. other process) arrive here
+			context.getApplicationContext().getContentResolver().registerContentObserver(
+					ProductColumns.CONTENT_URI, true, new ContentObserver(null) {
+						@Override
+						public void onChange(boolean selfChange) {
+							sInstance.invalidate();
+						}
+					});
+		}
+		return sInstance;
+	}
+
+	/**
+	 * Called by ProductDbHelper after writing products, content observers are notified
+	 * asynchronously so cache must not wait for them.
+	 */
+	static synchronized void onProductsModified() {
+		if (sInstance != null)
+			sInstance.invalidate();
+	}
+
+	/**
+	 * @return value to pass along with query result to put methods
+	 */
+	public synchronized int getGeneration() {
+		return mGeneration;
+	}
+
+	public Product getProduct(@NonNull String productId) {
+		return mProducts.get(productId);
+	}
+
+	public synchronized void putProduct(int generation, @NonNull Product product) {
+		if (generation == mGeneration)
+			mProducts.put(product.getId(), product);
+	}
+
+	/**
+	 * @return copy of cached list, null if not cached
+	 */
+	public List<Product> getList(@NonNull String key) {
+		List<Product> list = mLists.get(key);
+		return list != null ? new ArrayList<>(list) : null;
+	}
+
+	public synchronized void putList(int generation, @NonNull String key, @NonNull List<Product> list) {
+		if (generation == mGeneration)
+			mLists.put(key, new ArrayList<>(list));
+	}
+
+	public synchronized void invalidate() {
+		mGeneration++;
+		mProducts.evictAll();
+		mLists.evictAll();
+	}
+
+	/**
+	 * Releases part or all of cache depending on memory pressure, see {@link ComponentCallbacks2#onTrimMemory(int)}
+	 */
+	public void onTrimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+			mProducts.evictAll();
+			mLists.evictAll();
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			mProducts.trimToSize(MAX_PRODUCTS / 2);
+			mLists.trimToSize(MAX_LIST_PRODUCTS / 2);
+		}
+	}
+
+	public int getHitCount() {
+		return mProducts.hitCount() + mLists.hitCount();
+	}
+
+	public int getMissCount() {
+		return mProducts.missCount() + mLists.missCount();
+	}
+}
@@ -1,10 +1,14 @@
 package com.greentopli.core.storage.helper;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentUris;
+import android.content.ContentValues;
 import android.content.Context;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import com.greentopli.core.storage.DatabaseProvider;
 import com.greentopli.core.storage.product.ProductColumns;
 import com.greentopli.core.storage.product.ProductContentValues;
 import com.greentopli.core.storage.product.ProductCursor;
@@ -21,12 +25,115 @@ import java.util.Locale;
 
 public class ProductDbHelper {
 	private Context context;
+	private ProductCache cache;
 
 	public ProductDbHelper(Context context) {
 		this.context = context;
+		this.cache = ProductCache.getInstance(context);
 	}
 
 	public long storeProduct(@NonNull Product product) {
+		ProductContentValues values = getValuesFromPOJO(product);
+		Uri uri = values.insert(context.getContentResolver());
+		ProductCache.onProductsModified();
+		return ContentUris.parseId(uri);
+	}
+
+	/**
+	 * Stores whole catalog with single {@link android.content.ContentResolver#bulkInsert},
+	 * i.e. one transaction & one change notification instead of one per product.
+	 *
+	 * @return number of rows inserted
+	 */
+	public int storeProducts(@NonNull List<Product> productList) {
+		ContentValues[] values = new ContentValues[productList.size()];
+		for (int i = 0; i < productList.size(); i++) {
+			values[i] = getValuesFromPOJO(productList.get(i)).values();
+		}
+		int inserted = context.getContentResolver().bulkInsert(ProductColumns.CONTENT_URI, values);
+		ProductCache.onProductsModified();
+		return inserted;
+	}
+
+	/**
+	 * Replaces whole catalog in single batch, so products removed on server are removed locally too.
+	 */
+	public boolean replaceProducts(@NonNull List<Product> productList) {
+		ArrayList<ContentProviderOperation> operations = new ArrayList<>(productList.size() + 1);
+		operations.add(ContentProviderOperation.newDelete(ProductColumns.CONTENT_URI).build());
+		for (Product product : productList) {
+			operations.add(ContentProviderOperation.newInsert(ProductColumns.CONTENT_URI)
+					.withValues(getValuesFromPOJO(product).values())
+					.build());
+		}
+		boolean replaced = DatabaseProvider.applyBatch(context, operations) != null;
+		ProductCache.onProductsModified();
+		return replaced;
+	}
+
+	/**
+	 * Applies incremental catalog changes in single batch.
+	 *
+	 * @param products   added or modified products
+	 * @param deletedIds products removed from catalog
+	 */
+	public boolean storeProductUpdates(@NonNull List<Product> products, @NonNull List<String> deletedIds) {
+		ArrayList<ContentProviderOperation> operations = new ArrayList<>(products.size() * 2 + deletedIds.size());
+		for (Product product : products) {
+			// name is part of unique constraint, drop old row so that renamed product is not duplicated
+			operations.add(getDeleteOperation(product.getId()));
+			operations.add(ContentProviderOperation.newInsert(ProductColumns.CONTENT_URI)
+					.withValues(getValuesFromPOJO(product).values())
+					.build());
+		}
+		for (String productId : deletedIds) {
+			operations.add(getDeleteOperation(productId));
+		}
+		boolean updated = DatabaseProvider.applyBatch(context, operations) != null;
+		ProductCache.onProductsModified();
+		return updated;
+	}
+
+	private ContentProviderOperation getDeleteOperation(@NonNull String product_id) {
+		ProductSelection selection = new ProductSelection();
+		selection.productId(product_id);
+		return ContentProviderOperation.newDelete(selection.uri())
+				.withSelection(selection.sel(), selection.args())
+				.build();
+	}
+
+	/**
+	 * @return largest row id of product table, rows are never given a smaller id afterwards
+	 */
+	public long getLastRowId() {
+		ProductSelection selection = new ProductSelection();
+		ProductCursor cursor = selection.query(context.getContentResolver(),
+				new String[]{"MAX(" + ProductColumns._ID + ")"});
+		long rowId = 0;
+		if (cursor.moveToFirst() && !cursor.isNull(0))
+			rowId = cursor.getLong(0);
+		cursor.close();
+		return rowId;
+	}
+
+	/**
+	 * Removes products stored before given row, i.e. ones not written again since its id was taken.
+	 */
+	public boolean removeProductsUpTo(long lastRowId) {
+		ProductSelection selection = new ProductSelection();
+		selection.addRaw(ProductColumns._ID + " <= ?", lastRowId);
+		try {
+			selection.delete(context);
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			ProductCache.onProductsModified();
+		}
+	}
+
+	private ProductContentValues getValuesFromPOJO(Product product) {
 		ProductContentValues values = new ProductContentValues();
 		values.putProductId(product.getId());
 		values.putNameEnglish(product.getName_english());
@@ -39,19 +146,12 @@ public class ProductDbHelper {
 		values.putMinVolume(product.getMinimumVolume());
 		values.putMaxVolume(product.getMaximumVolume());
 		values.putTime(product.getTime());
-		Uri uri = values.insert(context.getContentResolver());
-		return ContentUris.parseId(uri);
-	}
-
-	public void storeProducts(@NonNull List<Product> productList) {
-		for (Product item : productList) {
-			long id = storeProduct(item);
-		}
+		return values;
 	}
 
 	public List<Product> getProducts() {
 		ProductSelection selection = new ProductSelection();
-		return getProducts(selection);
+		return getCachedProducts("all", selection);
 	}
 
 	public List<Product> getProducts(String query) {
@@ -60,10 +160,87 @@ public class ProductDbHelper {
 		return getProducts(selection);
 	}
 
+	/**
+	 * Prefix search over english & hinglish names using full text index.
+	 * Products whose english name starts with first term are listed first, then hinglish matches.
+	 */
+	public List<Product> searchProducts(String query) {
+		ProductSelection selection = getSearchSelection(query);
+		if (selection == null)
+			return new ArrayList<>();
+		return getProducts(selection);
+	}
+
+	/**
+	 * @return null when query has no letters or digits to search for
+	 */
+	static ProductSelection getSearchSelection(String query) {
+		String[] terms = query.trim().toLowerCase(Locale.ENGLISH).split("[^\\p{L}\\p{N}]+");
+		StringBuilder matchQuery = new StringBuilder();
+		for (String term : terms) {
+			if (term.isEmpty())
+				continue;
+			if (matchQuery.length() > 0)
+				matchQuery.append(' ');
+			matchQuery.append(term).append('*');
+		}
+		if (matchQuery.length() == 0)
+			return null;
+
+		String firstTerm = matchQuery.substring(0, matchQuery.indexOf("*"));
+		ProductSelection selection = new ProductSelection();
+		selection.nameMatches(matchQuery.toString());
+		selection.orderByRaw("CASE WHEN " + ProductColumns.NAME_ENGLISH + " LIKE ? || '%' THEN 0 WHEN "
+				+ ProductColumns.NAME_HINGLISH + " LIKE ? || '%' THEN 1 ELSE 2 END", firstTerm, firstTerm);
+		selection.orderByNameEnglish();
+		return selection;
+	}
+
+	/**
+	 * Page of catalog ordered by english name, keyed by last product of previous page
+	 * so every page costs the same regardless of its position in catalog.
+	 *
+	 * @param after last product of previous page, null for first page
+	 */
+	public List<Product> getProductPage(@Nullable Product after, int pageSize) {
+		return getProductPage(Product.Type.ALL, new ProductSelection(), after, pageSize);
+	}
+
+	public List<Product> getProductPage(Product.Type productType, @Nullable Product after, int pageSize) {
+		ProductSelection selection = new ProductSelection();
+		selection.type(productType.name());
+		if (after != null)
+			selection.and();
+		return getProductPage(productType, selection, after, pageSize);
+	}
+
+	private List<Product> getProductPage(Product.Type productType, ProductSelection selection, @Nullable Product after, int pageSize) {
+		String key = "page/" + productType.name() + "/" + pageSize;
+		if (after != null) {
+			selection.after(after.getName_english(), after.getId());
+			key += "/" + after.getName_english() + "/" + after.getId();
+		}
+		selection.orderByNameEnglish().orderByProductId().limit(pageSize);
+		return getCachedProducts(key, selection);
+	}
+
 	public List<Product> getProducts(Product.Type productType) {
 		ProductSelection selection = new ProductSelection();
 		selection.type(productType.name());
-		return getProducts(selection);
+		return getCachedProducts("type/" + productType.name(), selection);
+	}
+
+	/**
+	 * @param key identifies {@code selection} within {@link ProductCache}
+	 */
+	private List<Product> getCachedProducts(String key, ProductSelection selection) {
+		List<Product> list = cache.getList(key);
+		if (list == null) {
+			int generation = cache.getGeneration();
+			list = getProducts(selection);
+			cache.putList(generation, key, list);
+		}
+		return list;
 	}
 
 	private List<Product> getProducts(ProductSelection selection) {
@@ -78,15 +255,6 @@ public class ProductDbHelper {
 		return list;
 	}
 
-	public List<Product> getProducts(List<String> product_ids) {
-		if (product_ids.size() <= 0)
-			return null;
-		ProductSelection selection = new ProductSelection();
-		String[] ids = product_ids.toArray(new String[product_ids.size()]);
-		selection.productId(ids);
-		return getProducts(selection);
-	}
-
 	public Product getProductFromCursor(ProductCursor cursor) {
 		Product product = new Product();
 		product.setId(cursor.getProductId());
@@ -105,12 +273,19 @@ public class ProductDbHelper {
 	}
 
 	public Product getProduct(@NonNull String product_id) {
+		Product product = cache.getProduct(product_id);
+		if (product != null)
+			return product;
+
+		int generation = cache.getGeneration();
 		ProductSelection where = new ProductSelection();
 		where.productId(product_id);
-		Product product = new Product();
+		product = new Product();
 		ProductCursor cursor = where.query(context);
-		if (cursor.moveToNext())
+		if (cursor.moveToNext()) {
 			product = getProductFromCursor(cursor);
+			cache.putProduct(generation, product);
+		}
 		cursor.close();
 		return product;
 	}
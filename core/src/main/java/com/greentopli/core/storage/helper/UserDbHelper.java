@@ -33,7 +33,10 @@ public class UserDbHelper {
 		values.putAuthToken(user.getAuthToken());
 		values.putPhotoUrl(user.getPhotoUrl());
 		Uri uri = values.insert(context.getContentResolver());
-		return ContentUris.parseId(uri);
+		long id = ContentUris.parseId(uri);
+		if (id > 0)
+			UserSession.getInstance(context).setUser(user);
+		return id;
 	}
 
 	public User getUserInfo(@NonNull UserCursor cursor) {
@@ -49,7 +52,14 @@ public class UserDbHelper {
 		return user;
 	}
 
+	/**
+	 * @return signed in user from {@link UserSession}, user table is queried only once per process
+	 */
 	public User getSignedUserInfo() {
+		return UserSession.getInstance(context).getUser();
+	}
+
+	User querySignedUserInfo() {
 		UserSelection where = new UserSelection();
 		UserCursor cursor = where.query(context.getContentResolver(), UserColumns.ALL_COLUMNS);
 		User user = null;
@@ -62,7 +72,9 @@ public class UserDbHelper {
 	public long removeUserInfo() {
 		UserSelection where = new UserSelection();
 //		where.email(email);
-		return where.delete(context);
+		long deleted = where.delete(context);
+		UserSession.getInstance(context).setUser(null);
+		return deleted;
 	}
 
 	public boolean isUserInfoAvailable(@NonNull String email) {
@@ -0,0 +1,99 @@
+package com.greentopli.core.storage.helper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.greentopli.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signed in user of this process. Loaded from user table once, afterwards kept current by
+ * {@link UserDbHelper#storeUserInfo(User)} & {@link UserDbHelper#removeUserInfo()}.
+ */
+
+public class UserSession {
+	private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+	private static UserSession sInstance;
+	private final UserDbHelper mUserDbHelper;
+	private final List<Listener> mListeners = new ArrayList<>();
+	private User mUser;
+	private boolean mLoaded;
+
+	private UserSession(UserDbHelper userDbHelper) {
+		mUserDbHelper = userDbHelper;
+	}
+
+	public static synchronized UserSession getInstance(@NonNull Context context) {
+		if (sInstance == null)
+			sInstance = new UserSession(new UserDbHelper(context.getApplicationContext()));
+		return sInstance;
+	}
+
+	/**
+	 * @return copy of signed in user, null if nobody is signed in
+	 */
+	@Nullable
+	public synchronized User getUser() {
+		if (!mLoaded) {
+			mUser = mUserDbHelper.querySignedUserInfo();
+			mLoaded = true;
+		}
+		return copyOf(mUser);
+	}
+
+	/**
+	 * Called by UserDbHelper once user table is written
+	 */
+	synchronized void setUser(@Nullable User user) {
+		mUser = copyOf(user);
+		mLoaded = true;
+		notifyListeners(copyOf(user));
+	}
+
+	/**
+	 * @param listener notified on main thread whenever user signs in, is updated or signs out
+	 */
+	public synchronized void addListener(@NonNull Listener listener) {
+		mListeners.add(listener);
+	}
+
+	public synchronized void removeListener(@NonNull Listener listener) {
+		mListeners.remove(listener);
+	}
+
+	private void notifyListeners(final User user) {
+		for (final Listener listener : mListeners) {
+			MAIN_HANDLER.post(new Runnable() {
+				@Override
+				public void run() {
+					listener.onSignedUserChanged(user);
+				}
+			});
+		}
+	}
+
+	// callers may modify user they get, e.g. before storing it again
+	private static User copyOf(User user) {
+		if (user == null)
+			return null;
+		User copy = new User();
+		copy.setEmail(user.getEmail());
+		copy.setName(user.getName());
+		copy.setMobileNo(user.getMobileNo());
+		copy.setAddress(user.getAddress());
+		copy.setPincode(user.getPincode());
+		copy.setInstanceId(user.getInstanceId());
+		copy.setAuthToken(user.getAuthToken());
+		copy.setPhotoUrl(user.getPhotoUrl());
+		return copy;
+	}
+
+	public interface Listener {
+		void onSignedUserChanged(@Nullable User user);
+	}
+}
@@ -12,6 +12,11 @@ public class ProductColumns implements BaseColumns {
 	public static final String TABLE_NAME = "product";
 	public static final Uri CONTENT_URI = Uri.parse(DatabaseProvider.CONTENT_URI_BASE + "/" + TABLE_NAME);
 
+	/**
+	 * Full text index of product names, {@code docid} refers to {@link #_ID}.
+	 */
+	public static final String SEARCH_TABLE_NAME = "product_search";
+
 	/**
 	 * Primary key.
 	 */
@@ -24,7 +24,7 @@ public class ProductSelection extends AbstractSelection<ProductSelection> {
 	 * @return A {@code ProductCursor} object, which is positioned before the first entry, or null.
 	 */
 	public ProductCursor query(ContentResolver contentResolver, String[] projection) {
-		Cursor cursor = contentResolver.query(uri(), projection, sel(), args(), order());
+		Cursor cursor = contentResolver.query(uri(), projection, sel(), queryArgs(), order());
 		if (cursor == null) return null;
 		return new ProductCursor(cursor);
 	}
@@ -44,7 +44,7 @@ public class ProductSelection extends AbstractSelection<ProductSelection> {
 	 * @return A {@code ProductCursor} object, which is positioned before the first entry, or null.
 	 */
 	public ProductCursor query(Context context, String[] projection) {
-		Cursor cursor = context.getContentResolver().query(uri(), projection, sel(), args(), order());
+		Cursor cursor = context.getContentResolver().query(uri(), projection, sel(), queryArgs(), order());
 		if (cursor == null) return null;
 		return new ProductCursor(cursor);
 	}
@@ -76,6 +76,27 @@ public class ProductSelection extends AbstractSelection<ProductSelection> {
 		return orderById(false);
 	}
 
+	/**
+	 * Full text match on {@code name_english} & {@code name_hinglish}.
+	 *
+	 * @param matchQuery FTS query eg. {@code "tom*"}
+	 */
+	public ProductSelection nameMatches(String matchQuery) {
+		addRaw("product." + ProductColumns._ID + " IN (SELECT docid FROM " + ProductColumns.SEARCH_TABLE_NAME
+				+ " WHERE " + ProductColumns.SEARCH_TABLE_NAME + " MATCH ?)", matchQuery);
+		return this;
+	}
+
+	/**
+	 * Products following given one in catalog order ({@code name_english, product_id}),
+	 * written so that index on those columns is used to seek to the key.
+	 */
+	public ProductSelection after(String nameEnglish, String productId) {
+		addRaw(ProductColumns.NAME_ENGLISH + " >= ? AND (" + ProductColumns.NAME_ENGLISH + " > ? OR "
+				+ ProductColumns.PRODUCT_ID + " > ?)", nameEnglish, nameEnglish, productId);
+		return this;
+	}
+
 	public ProductSelection productId(String... value) {
 		addEquals(ProductColumns.PRODUCT_ID, value);
 		return this;
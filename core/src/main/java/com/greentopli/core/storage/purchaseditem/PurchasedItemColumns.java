@@ -4,6 +4,7 @@ import android.net.Uri;
 import android.provider.BaseColumns;
 
 import com.greentopli.core.storage.DatabaseProvider;
+import com.greentopli.core.storage.product.ProductColumns;
 
 /**
  * Order Information
@@ -12,6 +13,12 @@ public class PurchasedItemColumns implements BaseColumns {
 	public static final String TABLE_NAME = "purchased_item";
 	public static final Uri CONTENT_URI = Uri.parse(DatabaseProvider.CONTENT_URI_BASE + "/" + TABLE_NAME);
 
+	/**
+	 * Purchased items joined with their product, read only. Columns present in both tables have to be qualified.
+	 */
+	public static final Uri CONTENT_URI_WITH_PRODUCT = Uri.parse(DatabaseProvider.CONTENT_URI_BASE + "/" + TABLE_NAME
+			+ "/" + ProductColumns.TABLE_NAME);
+
 	/**
 	 * Primary key.
 	 */
@@ -11,9 +11,19 @@ import com.greentopli.core.storage.base.AbstractSelection;
  * Selection for the {@code purchased_item} table.
  */
 public class PurchasedItemSelection extends AbstractSelection<PurchasedItemSelection> {
+	private boolean mWithProduct;
+
 	@Override
 	protected Uri baseUri() {
-		return PurchasedItemColumns.CONTENT_URI;
+		return mWithProduct ? PurchasedItemColumns.CONTENT_URI_WITH_PRODUCT : PurchasedItemColumns.CONTENT_URI;
+	}
+
+	/**
+	 * Queries purchased items joined with their product, see {@link PurchasedItemColumns#CONTENT_URI_WITH_PRODUCT}.
+	 */
+	public PurchasedItemSelection withProduct() {
+		mWithProduct = true;
+		return this;
 	}
 
 	/**
@@ -24,7 +34,7 @@ public class PurchasedItemSelection extends AbstractSelection<PurchasedItemSelec
 	 * @return A {@code PurchasedItemCursor} object, which is positioned before the first entry, or null.
 	 */
 	public PurchasedItemCursor query(ContentResolver contentResolver, String[] projection) {
-		Cursor cursor = contentResolver.query(uri(), projection, sel(), args(), order());
+		Cursor cursor = contentResolver.query(uri(), projection, sel(), queryArgs(), order());
 		if (cursor == null) return null;
 		return new PurchasedItemCursor(cursor);
 	}
@@ -44,7 +54,7 @@ public class PurchasedItemSelection extends AbstractSelection<PurchasedItemSelec
 	 * @return A {@code PurchasedItemCursor} object, which is positioned before the first entry, or null.
 	 */
 	public PurchasedItemCursor query(Context context, String[] projection) {
-		Cursor cursor = context.getContentResolver().query(uri(), projection, sel(), args(), order());
+		Cursor cursor = context.getContentResolver().query(uri(), projection, sel(), queryArgs(), order());
 		if (cursor == null) return null;
 		return new PurchasedItemCursor(cursor);
 	}
@@ -24,7 +24,7 @@ public class UserSelection extends AbstractSelection<UserSelection> {
 	 * @return A {@code UserCursor} object, which is positioned before the first entry, or null.
 	 */
 	public UserCursor query(ContentResolver contentResolver, String[] projection) {
-		Cursor cursor = contentResolver.query(uri(), projection, sel(), args(), order());
+		Cursor cursor = contentResolver.query(uri(), projection, sel(), queryArgs(), order());
 		if (cursor == null) return null;
 		return new UserCursor(cursor);
 	}
@@ -44,7 +44,7 @@ public class UserSelection extends AbstractSelection<UserSelection> {
 	 * @return A {@code UserCursor} object, which is positioned before the first entry, or null.
 	 */
 	public UserCursor query(Context context, String[] projection) {
-		Cursor cursor = context.getContentResolver().query(uri(), projection, sel(), args(), order());
+		Cursor cursor = context.getContentResolver().query(uri(), projection, sel(), queryArgs(), order());
 		if (cursor == null) return null;
 		return new UserCursor(cursor);
 	}
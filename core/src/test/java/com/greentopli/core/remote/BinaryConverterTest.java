@@ -0,0 +1,134 @@
+package com.greentopli.core.remote;
+
+import com.greentopli.model.BinaryModelCodec;
+import com.greentopli.model.Product;
+import com.greentopli.model.list.EntityList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Catalog received in binary format or as JSON, whichever server chooses to send.
+ */
+
+public class BinaryConverterTest {
+	private MockWebServer server;
+	private BackendConnectionService service;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		service = ServiceGenerator.createRetrofit(server.url("/"), ServiceGenerator.createHttpClient(null))
+				.create(BackendConnectionService.class);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	public void testBinaryResponse() throws Exception {
+		List<Product> products = catalog(200);
+		Buffer body = new Buffer();
+		BinaryModelCodec.writeProducts(products, body.outputStream());
+		long binarySize = body.size();
+		server.enqueue(new MockResponse().setHeader("Content-Type", BinaryModelCodec.MEDIA_TYPE).setBody(body));
+
+		EntityList<Product> received = service.getProductInfoList().execute().body();
+		assertTrue(server.takeRequest().getHeader("Accept").startsWith(BinaryModelCodec.MEDIA_TYPE));
+		String json = ServiceGenerator.getGson().toJson(products);
+		assertEquals(json, ServiceGenerator.getGson().toJson(received.getItems()));
+		// field names, enum names & image locations are not repeated
+		assertTrue(binarySize * 3 < json.length());
+	}
+
+	@Test
+	public void testJsonFallback() throws Exception {
+		List<Product> products = catalog(3);
+		EntityList<Product> list = new EntityList<>();
+		list.setItems(products);
+		server.enqueue(new MockResponse().setHeader("Content-Type", "application/json; charset=UTF-8")
+				.setBody(ServiceGenerator.getGson().toJson(list)));
+
+		EntityList<Product> received = service.getProductInfoList().execute().body();
+		assertEquals(ServiceGenerator.getGson().toJson(products), ServiceGenerator.getGson().toJson(received.getItems()));
+	}
+
+	@Test
+	public void testInvalidCounts() throws Exception {
+		// negative & huge string count, huge string length, huge record count
+		assertRejected(message(-1));
+		assertRejected(message(Integer.MAX_VALUE));
+		assertRejected(message(1, Integer.MAX_VALUE));
+		assertRejected(message(0, Long.MAX_VALUE));
+		// record count beyond int range must not wrap around
+		assertRejected(message(0, 1L << 32));
+	}
+
+	@Test
+	public void testTruncatedMessage() throws Exception {
+		// record count claims more than stream holds, nothing is allocated for it up front
+		assertRejected(message(0, 1000));
+		assertRejected(message(3, 5));
+	}
+
+	private static void assertRejected(byte[] message) {
+		try {
+			BinaryModelCodec.readProducts(new ByteArrayInputStream(message));
+			fail("Invalid message must fail");
+		} catch (IOException expected) {
+		}
+	}
+
+	/**
+	 * @return products message header followed by given zigzag varints
+	 */
+	private static byte[] message(long... values) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write('G');
+		out.write('T');
+		out.write('B');
+		out.write(1);
+		out.write(BinaryModelCodec.KIND_PRODUCTS);
+		for (long value : values) {
+			long zigzag = (value << 1) ^ (value >> 63);
+			while ((zigzag & ~0x7fL) != 0) {
+				out.write((int) ((zigzag & 0x7f) | 0x80));
+				zigzag >>>= 7;
+			}
+			out.write((int) zigzag);
+		}
+		return out.toByteArray();
+	}
+
+	private static List<Product> catalog(int size) {
+		List<Product> products = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Product product = new Product("product " + i, "product " + i,
+					Product.Type.values()[i % Product.Type.values().length], Product.Volume.WEIGHT, 20 + i);
+			product.setMinimumVolume(250);
+			product.setMaximumVolume(5000);
+			product.setVolumeSet(250);
+			product.setImageUrl("https://storage.googleapis.com/green-topli.appspot.com/products/" + i + ".jpg");
+			products.add(product);
+		}
+		return products;
+	}
+}
@@ -0,0 +1,114 @@
+package com.greentopli.core.remote;
+
+import com.greentopli.model.PurchasedItem;
+import com.greentopli.model.User;
+import com.greentopli.model.list.UserOrders;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checkout & sign up bodies sent to a local server, compressed when large enough.
+ */
+
+public class GzipRequestInterceptorTest {
+	private static final String RESULT = "{\"result\":true}";
+	private MockWebServer server;
+	private GzipRequestInterceptor interceptor;
+	private BackendConnectionService service;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		interceptor = new GzipRequestInterceptor(1024);
+		OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+		service = ServiceGenerator.createRetrofit(server.url("/"), client).create(BackendConnectionService.class);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	public void testLargeBodyIsCompressed() throws Exception {
+		server.enqueue(new MockResponse().setBody(RESULT));
+		UserOrders orders = orders(50);
+		assertTrue(service.storePurchasedItems(orders).execute().body().isResult());
+
+		RecordedRequest request = server.takeRequest();
+		assertEquals("gzip", request.getHeader("Content-Encoding"));
+		assertNull(request.getHeader(GzipRequestInterceptor.HEADER));
+		assertEquals(ServiceGenerator.getGson().toJson(orders), gunzip(request.getBody()));
+		assertEquals(1, interceptor.getCompressedRequests());
+		assertTrue(interceptor.getBytesSaved() > 0);
+	}
+
+	@Test
+	public void testSmallBodyIsNotCompressed() throws Exception {
+		server.enqueue(new MockResponse().setBody(RESULT));
+		service.signUpUser(new User("user@example.com")).execute();
+
+		RecordedRequest request = server.takeRequest();
+		assertNull(request.getHeader("Content-Encoding"));
+		assertEquals(ServiceGenerator.getGson().toJson(new User("user@example.com")), request.getBody().readUtf8());
+		assertEquals(0, interceptor.getCompressedRequests());
+	}
+
+	@Test
+	public void testUnsupportedMediaTypeFallback() throws Exception {
+		server.enqueue(new MockResponse().setResponseCode(HttpURLConnection.HTTP_UNSUPPORTED_TYPE));
+		server.enqueue(new MockResponse().setBody(RESULT));
+		server.enqueue(new MockResponse().setBody(RESULT));
+		UserOrders orders = orders(50);
+		String json = ServiceGenerator.getGson().toJson(orders);
+
+		assertTrue(service.storePurchasedItems(orders).execute().body().isResult());
+		assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+		RecordedRequest retry = server.takeRequest();
+		assertNull(retry.getHeader("Content-Encoding"));
+		assertEquals(json, retry.getBody().readUtf8());
+		assertEquals(1, interceptor.getFallbacks());
+
+		// host is known not to accept compressed bodies
+		service.storePurchasedItems(orders).execute();
+		assertNull(server.takeRequest().getHeader("Content-Encoding"));
+	}
+
+	private static UserOrders orders(int count) {
+		List<PurchasedItem> items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			PurchasedItem item = new PurchasedItem("user@example.com", "product-" + i);
+			item.setVolume(500);
+			item.setTotalPrice(80);
+			item.setDateRequested(1478000000000L);
+			items.add(item);
+		}
+		return new UserOrders(items);
+	}
+
+	private static String gunzip(Buffer body) throws Exception {
+		Buffer result = new Buffer();
+		GzipSource source = new GzipSource(body);
+		while (source.read(result, Long.MAX_VALUE) != -1) {
+		}
+		return result.readUtf8();
+	}
+}
@@ -0,0 +1,74 @@
+package com.greentopli.core.remote;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.greentopli.model.BackendResult;
+import com.greentopli.model.ModelTypeAdapterFactory;
+import com.greentopli.model.OrderHistory;
+import com.greentopli.model.Product;
+import com.greentopli.model.PurchasedItem;
+import com.greentopli.model.User;
+import com.greentopli.model.list.EntityList;
+import com.greentopli.model.list.ProductUpdates;
+import com.greentopli.model.list.UserOrders;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Hand written adapters must read & write same JSON as Gson's reflective binding.
+ */
+
+public class ModelJsonTest {
+	private final Gson reflective = new Gson();
+	private final Gson adapters = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+
+	@Test
+	public void testSameJson() {
+		Product product = new Product("lemon", "nimbu", Product.Type.FRUITY, Product.Volume.QUANTITY, 20);
+		// null fields are left out
+		product.setImageUrl(null);
+		PurchasedItem item = new PurchasedItem("user@example.com", product.getId());
+		item.setAccepted(true);
+		item.setVolume(3);
+		User user = new User("user@example.com");
+		user.setMobileNo(9999999999L);
+		OrderHistory history = new OrderHistory("user@example.com", 1478000000000L);
+		history.setProducts(Collections.singletonList(product));
+		history.setPurchasedItems(Collections.singletonList(item));
+		ProductUpdates updates = new ProductUpdates();
+		updates.setItems(Collections.singletonList(product));
+		updates.setDeletedIds(Arrays.asList("p1", "p2"));
+
+		Object[] models = {product, item, user, history, updates, new UserOrders(Collections.singletonList(item)),
+				BackendResult.success("stored")};
+		for (Object model : models) {
+			String json = reflective.toJson(model);
+			assertEquals(json, adapters.toJson(model));
+			// read back by adapter, written again by reflection
+			assertEquals(json, reflective.toJson(adapters.fromJson(json, model.getClass())));
+		}
+	}
+
+	@Test
+	public void testEntityList() {
+		Type type = new TypeToken<EntityList<Product>>() {
+		}.getType();
+		// unknown members & enum constants, numbers sent as strings
+		String json = "{\"kind\":\"list\",\"items\":[{\"id\":\"p1\",\"type\":\"UNKNOWN\",\"volume\":\"WEIGHT\","
+				+ "\"time\":\"1478000000000\",\"extra\":{\"a\":[1,2]}}]}";
+		EntityList<Product> expected = reflective.fromJson(json, type);
+		EntityList<Product> actual = adapters.fromJson(json, type);
+		assertEquals(reflective.toJson(expected, type), reflective.toJson(actual, type));
+		assertNull(actual.getItems().get(0).getType());
+		assertEquals(Product.Volume.WEIGHT, actual.getItems().get(0).getVolume());
+		assertEquals(1478000000000L, actual.getItems().get(0).getTime());
+	}
+}
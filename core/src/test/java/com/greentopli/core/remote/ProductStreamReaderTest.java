@@ -0,0 +1,163 @@
+package com.greentopli.core.remote;
+
+import com.google.gson.Gson;
+import com.greentopli.model.Product;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Product list response read in chunks, heap used while reading must not grow with catalog size.
+ */
+
+public class ProductStreamReaderTest {
+	private static final int CHUNK_SIZE = 250;
+	private static final int CATALOG_SIZE = 100000;
+	// whole catalog of this size as objects takes several times more
+	private static final long MAX_HEAP_GROWTH = 8 * 1024 * 1024;
+
+	@Test
+	public void testChunks() throws Exception {
+		String body = "{\"kind\":\"list\",\"items\":[" + product(1) + "," + product(2) + "," + product(3)
+				+ "],\"etag\":\"abc\"}";
+		final List<Integer> chunkSizes = new ArrayList<>();
+		final List<String> ids = new ArrayList<>();
+		int count = new ProductStreamReader(new Gson(), 2).read(new StringReader(body),
+				new ProductStreamReader.ChunkListener() {
+					@Override
+					public void onChunk(List<Product> products) {
+						chunkSizes.add(products.size());
+						for (Product product : products) {
+							ids.add(product.getId());
+						}
+					}
+				});
+		assertEquals(3, count);
+		assertEquals(2, (int) chunkSizes.get(0));
+		assertEquals(1, (int) chunkSizes.get(1));
+		assertEquals("p1", ids.get(0));
+		assertEquals("p3", ids.get(2));
+	}
+
+	@Test
+	public void testEmptyResponse() throws Exception {
+		int count = new ProductStreamReader(new Gson(), CHUNK_SIZE).read(new StringReader("{\"kind\":\"list\"}"),
+				new ProductStreamReader.ChunkListener() {
+					@Override
+					public void onChunk(List<Product> products) {
+						throw new AssertionError("no products expected");
+					}
+				});
+		assertEquals(0, count);
+	}
+
+	@Test
+	public void testBrokenDownloadThrowsIOException() throws Exception {
+		final String body = "{\"items\":[" + product(1) + "," + product(2);
+		Reader dropped = new Reader() {
+			private final StringReader mBody = new StringReader(body);
+
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				int read = mBody.read(buffer, offset, Math.min(length, 16));
+				if (read < 0)
+					throw new IOException("connection reset");
+				return read;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		try {
+			new ProductStreamReader(new Gson(), CHUNK_SIZE).read(dropped, new ProductStreamReader.ChunkListener() {
+				@Override
+				public void onChunk(List<Product> products) {
+				}
+			});
+			fail("Broken download must not end normally");
+		} catch (IOException expected) {
+			// not wrapped in JsonSyntaxException, so ingest is aborted & cached response evicted
+			assertEquals("connection reset", expected.getMessage());
+		}
+	}
+
+	@Test
+	public void testHeapStaysBounded() throws Exception {
+		final Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		final long baseline = runtime.totalMemory() - runtime.freeMemory();
+		final long[] peak = new long[1];
+		final int[] chunks = new int[1];
+		int count = new ProductStreamReader(new Gson(), CHUNK_SIZE).read(new SyntheticCatalog(CATALOG_SIZE),
+				new ProductStreamReader.ChunkListener() {
+					@Override
+					public void onChunk(List<Product> products) {
+						assertTrue(products.size() <= CHUNK_SIZE);
+						// sampled after collection, garbage of parsed chunks does not count
+						if (++chunks[0] % 20 == 0) {
+							System.gc();
+							peak[0] = Math.max(peak[0], runtime.totalMemory() - runtime.freeMemory());
+						}
+					}
+				});
+		assertEquals(CATALOG_SIZE, count);
+		// heap was sampled all along the download, not only at its start
+		assertEquals(CATALOG_SIZE / CHUNK_SIZE, chunks[0]);
+		assertTrue(peak[0] > 0);
+		long growth = peak[0] - baseline;
+		assertTrue("heap grew by " + growth / 1024 + " KB", growth < MAX_HEAP_GROWTH);
+	}
+
+	private static String product(int i) {
+		return "{\"id\":\"p" + i + "\",\"name_english\":\"Product " + i + "\",\"name_hinglish\":\"Product " + i
+				+ "\",\"minimumVolume\":250,\"maximumVolume\":5000,\"volumeSet\":250,"
+				+ "\"imageUrl\":\"https://example.com/p" + i + ".png\",\"price\":40,\"time\":1478000000000,"
+				+ "\"type\":\"LEAFY\",\"volume\":\"WEIGHT\"}";
+	}
+
+	/**
+	 * Response body generated while it is read, like a download in progress.
+	 */
+	private static class SyntheticCatalog extends Reader {
+		private final int mSize;
+		private int mNext = 0;
+		private String mPart = "{\"kind\":\"list\",\"items\":[";
+		private int mPosition = 0;
+
+		SyntheticCatalog(int size) {
+			mSize = size;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			if (mPosition == mPart.length()) {
+				if (mNext > mSize)
+					return -1;
+				mNext++;
+				if (mNext > mSize)
+					mPart = "]}";
+				else
+					mPart = (mNext > 1 ? "," : "") + product(mNext);
+				mPosition = 0;
+			}
+			int count = Math.min(length, mPart.length() - mPosition);
+			mPart.getChars(mPosition, mPosition + count, buffer, offset);
+			mPosition += count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
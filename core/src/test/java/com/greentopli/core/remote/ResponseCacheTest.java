@@ -0,0 +1,92 @@
+package com.greentopli.core.remote;
+
+import com.greentopli.model.Product;
+import com.greentopli.model.list.EntityList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.HttpURLConnection;
+
+import okhttp3.Cache;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Catalog downloaded once & revalidated afterwards, unchanged catalog is answered with 304.
+ */
+
+public class ResponseCacheTest {
+	private static final String CATALOG = "{\"items\":[{\"id\":\"p1\",\"name_english\":\"Lemon\"}]}";
+	private static final String ETAG = "\"catalog-1\"";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private MockWebServer server;
+	private Cache cache;
+	private BackendConnectionService service;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		cache = new Cache(folder.newFolder(), 1024 * 1024);
+		service = ServiceGenerator.createRetrofit(server.url("/"), ServiceGenerator.createHttpClient(cache))
+				.create(BackendConnectionService.class);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testRevalidationWithEtag() throws Exception {
+		server.enqueue(new MockResponse().setBody(CATALOG).setHeader("ETag", ETAG));
+		server.enqueue(new MockResponse().setResponseCode(HttpURLConnection.HTTP_NOT_MODIFIED));
+
+		Response<EntityList<Product>> first = service.getProductInfoList().execute();
+		assertFalse(ServiceGenerator.isNotModified(first));
+		assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+		Response<EntityList<Product>> second = service.getProductInfoList().execute();
+		RecordedRequest revalidation = server.takeRequest();
+		assertEquals(ETAG, revalidation.getHeader("If-None-Match"));
+		assertTrue(ServiceGenerator.isNotModified(second));
+		// body is served from cache
+		assertNotNull(second.body());
+		assertEquals("p1", second.body().getItems().get(0).getId());
+
+		assertEquals(2, cache.requestCount());
+		assertEquals(2, cache.networkCount());
+		assertEquals(1, cache.hitCount());
+	}
+
+	@Test
+	public void testRevalidationWithLastModified() throws Exception {
+		String lastModified = "Sat, 12 Nov 2016 10:00:00 GMT";
+		server.enqueue(new MockResponse().setBody(CATALOG).setHeader("Last-Modified", lastModified));
+		server.enqueue(new MockResponse().setBody(CATALOG.replace("p1", "p2"))
+				.setHeader("Last-Modified", "Sun, 13 Nov 2016 10:00:00 GMT"));
+
+		service.getProductInfoList().execute();
+		server.takeRequest();
+
+		Response<EntityList<Product>> changed = service.getProductInfoList().execute();
+		assertEquals(lastModified, server.takeRequest().getHeader("If-Modified-Since"));
+		assertFalse(ServiceGenerator.isNotModified(changed));
+		assertEquals("p2", changed.body().getItems().get(0).getId());
+	}
+}
@@ -0,0 +1,83 @@
+package com.greentopli.core.remote;
+
+import com.greentopli.model.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Sign up, catalog & history calls against a local server, with one shared client & with a new
+ * client for every call as before. Each new connection to backend costs a TLS handshake.
+ */
+
+public class ServiceGeneratorTest {
+	private static final int ROUNDS = 20;
+	private MockWebServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	public void testServiceIsCreatedOnce() {
+		assertSame(ServiceGenerator.createService(BackendConnectionService.class),
+				ServiceGenerator.createService(BackendConnectionService.class));
+	}
+
+	@Test
+	public void testSharedClientReusesConnection() throws Exception {
+		OkHttpClient sharedClient = ServiceGenerator.createHttpClient(null);
+		for (int i = 0; i < ROUNDS; i++) {
+			runCalls(sharedClient);
+		}
+		assertEquals(1, countConnections(ROUNDS * 3));
+
+		for (int i = 0; i < ROUNDS; i++) {
+			// previous behaviour, client built for each call
+			runCalls(null);
+		}
+		assertEquals(ROUNDS * 3, countConnections(ROUNDS * 3));
+	}
+
+	private void runCalls(OkHttpClient sharedClient) throws Exception {
+		server.enqueue(new MockResponse().setBody("{\"result\":true}"));
+		server.enqueue(new MockResponse().setBody("{}"));
+		server.enqueue(new MockResponse().setBody("{}"));
+		service(sharedClient).signUpUser(new User("user@example.com")).execute();
+		service(sharedClient).getProductInfoList().execute();
+		service(sharedClient).getUserOrderHistory("user@example.com").execute();
+	}
+
+	private BackendConnectionService service(OkHttpClient sharedClient) {
+		OkHttpClient client = sharedClient != null ? sharedClient : ServiceGenerator.createHttpClient(null);
+		return ServiceGenerator.createRetrofit(server.url("/"), client).create(BackendConnectionService.class);
+	}
+
+	/**
+	 * @return number of connections used by given count of recorded requests
+	 */
+	private int countConnections(int requests) throws Exception {
+		int connections = 0;
+		for (int i = 0; i < requests; i++) {
+			// first request on a connection has sequence number 0
+			if (server.takeRequest().getSequenceNumber() == 0)
+				connections++;
+		}
+		return connections;
+	}
+}
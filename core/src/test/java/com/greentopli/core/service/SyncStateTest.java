@@ -0,0 +1,95 @@
+package com.greentopli.core.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Merging of requests, minimum refresh interval & retry backoff of a sync job.
+ */
+
+public class SyncStateTest {
+	private static final long INTERVAL = 60 * 1000;
+
+	@Test
+	public void testRequestsMergedWhileRunning() {
+		SyncState state = new SyncState(INTERVAL, 0);
+		state.request(0, false);
+		assertTrue(state.isReady(0));
+		state.onStarted(0);
+		state.request(10, false);
+		assertFalse(state.isRequested());
+		assertFalse(state.isReady(10));
+
+		// urgent request runs again after running job
+		state.request(20, true);
+		assertFalse(state.isReady(20));
+		state.onFinished(30, true);
+		assertTrue(state.isReady(30));
+	}
+
+	@Test
+	public void testMinimumInterval() {
+		SyncState state = new SyncState(INTERVAL, 1000);
+		state.request(1000 + INTERVAL - 1, false);
+		assertFalse(state.isRequested());
+		state.request(1000 + INTERVAL, false);
+		assertTrue(state.isReady(1000 + INTERVAL));
+
+		// user refresh ignores interval
+		state = new SyncState(INTERVAL, 1000);
+		state.request(1001, true);
+		assertTrue(state.isReady(1001));
+	}
+
+	@Test
+	public void testBackoff() {
+		SyncState state = new SyncState(INTERVAL, 0);
+		long now = 0;
+		for (int failure = 1; failure <= SyncState.MAX_RETRIES; failure++) {
+			state.request(now, false);
+			state.onStarted(now);
+			state.onFinished(now, false);
+			long backoff = SyncState.BACKOFF_MILLIS << (failure - 1);
+			assertEquals(now + backoff, state.getRetryTime());
+			// retried on its own after backoff
+			assertFalse(state.isReady(now + backoff - 1));
+			assertTrue(state.isReady(now + backoff));
+			now += backoff;
+		}
+		state.onStarted(now);
+		state.onFinished(now, false);
+		assertFalse(state.isRequested());
+
+		state.onStarted(now);
+		state.onFinished(now, true);
+		assertEquals(0, state.getRetryTime());
+		assertEquals(now, state.getLastSuccess());
+	}
+
+	@Test
+	public void testBackoffLimit() {
+		SyncState state = new SyncState(INTERVAL, 0);
+		for (int i = 0; i < 40; i++) {
+			state.onStarted(0);
+			state.onFinished(0, false);
+		}
+		assertEquals(SyncState.MAX_BACKOFF_MILLIS, state.getRetryTime());
+	}
+
+	@Test
+	public void testLostJobIsStale() {
+		SyncState state = new SyncState(INTERVAL, 0);
+		state.onStarted(1000);
+		assertEquals(1000, state.getStartedAt());
+		state.request(1001, true);
+		// scheduler dispatches again at this time, job is not running any more by then
+		long staleTime = state.getStartedAt() + SyncState.STALE_MILLIS + 1;
+		assertFalse(state.isReady(staleTime - 1));
+		assertTrue(state.isRunning(staleTime - 1));
+		assertTrue(state.isReady(staleTime));
+		assertFalse(state.isRunning(staleTime));
+	}
+}
@@ -0,0 +1,56 @@
+package com.greentopli.core.storage;
+
+import com.greentopli.core.storage.base.BaseContentProvider;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Row changes of several notifications collapsed into one set.
+ */
+
+public class ChangeSetTest {
+
+	@Test
+	public void testSeparateRows() {
+		ChangeSet changes = new ChangeSet();
+		changes.addRowChange(1, BaseContentProvider.CHANGE_INSERT);
+		changes.addRowChange(2, BaseContentProvider.CHANGE_UPDATE);
+		changes.addRowChange(3, BaseContentProvider.CHANGE_DELETE);
+		assertFalse(changes.isTableChanged());
+		assertEquals(Collections.singleton(1L), changes.getInserted());
+		assertEquals(Collections.singleton(2L), changes.getUpdated());
+		assertEquals(Collections.singleton(3L), changes.getDeleted());
+	}
+
+	@Test
+	public void testInsertedRowStaysInserted() {
+		ChangeSet changes = new ChangeSet();
+		changes.addRowChange(1, BaseContentProvider.CHANGE_INSERT);
+		changes.addRowChange(1, BaseContentProvider.CHANGE_UPDATE);
+		assertEquals(Collections.singleton(1L), changes.getInserted());
+		assertTrue(changes.getUpdated().isEmpty());
+	}
+
+	@Test
+	public void testInsertedThenDeletedRowIsDropped() {
+		ChangeSet changes = new ChangeSet();
+		changes.addRowChange(1, BaseContentProvider.CHANGE_INSERT);
+		changes.addRowChange(1, BaseContentProvider.CHANGE_DELETE);
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	public void testUpdatedThenDeletedRowIsDeleted() {
+		ChangeSet changes = new ChangeSet();
+		changes.addRowChange(1, BaseContentProvider.CHANGE_UPDATE);
+		changes.addRowChange(1, BaseContentProvider.CHANGE_DELETE);
+		assertEquals(Collections.singleton(1L), changes.getDeleted());
+		assertTrue(changes.getUpdated().isEmpty());
+	}
+}
@@ -0,0 +1,105 @@
+package com.greentopli.core.storage;
+
+import com.greentopli.core.storage.base.AbstractSelection;
+import com.greentopli.core.storage.base.TestDatabase;
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.core.storage.product.ProductSelection;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemSelection;
+import com.greentopli.model.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs schema & migrations on plain SQLite and verifies hot queries of
+ * CartDbHelper & ProductDbHelper are served by an index.
+ */
+
+public class DatabaseMigrationsTest {
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = TestDatabase.inMemory().createSchema();
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		database.close();
+	}
+
+	@Test
+	public void testMigrationsAreOrdered() {
+		List<DatabaseMigration> migrations = DatabaseMigrations.getMigrations(1, DatabaseSQLiteOpenHelper.DATABASE_VERSION);
+		assertEquals(DatabaseSQLiteOpenHelper.DATABASE_VERSION - 1, migrations.size());
+		for (int i = 0; i < migrations.size(); i++) {
+			assertEquals(i + 2, migrations.get(i).getVersion());
+		}
+		assertTrue(DatabaseMigrations.getMigrations(DatabaseSQLiteOpenHelper.DATABASE_VERSION,
+				DatabaseSQLiteOpenHelper.DATABASE_VERSION).isEmpty());
+	}
+
+	@Test
+	public void testMissingMigrationFails() {
+		try {
+			DatabaseMigrations.getMigrations(1, DatabaseSQLiteOpenHelper.DATABASE_VERSION + 1);
+			fail("Upgrade without migration must fail");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void testMigrationsAreRepeatable() throws SQLException {
+		// upgrade interrupted half way must be able to run again
+		database.migrate();
+	}
+
+	@Test
+	public void testCartItemQueryUsesIndex() throws SQLException {
+		// CartDbHelper.isProductAddedToCart, getCartItem, updateVolume
+		assertUsesIndex("idx_purchased_item_accepted_product_id", PurchasedItemColumns.TABLE_NAME,
+				new PurchasedItemSelection().productId("id").and().accepted(false));
+	}
+
+	@Test
+	public void testCartItemsQueryUsesIndex() throws SQLException {
+		// CartDbHelper.getPurchasedItemList, getOrderSubtotal
+		assertUsesIndex("idx_purchased_item_accepted_date_requested", PurchasedItemColumns.TABLE_NAME,
+				new PurchasedItemSelection().accepted(true).and().dateRequested(1477000000000L));
+	}
+
+	@Test
+	public void testOrderHistoryQueryUsesIndex() throws SQLException {
+		// CartDbHelper.getOrderHistorySummary
+		assertUsesIndex("idx_purchased_item_accepted_user_id_date_requested", PurchasedItemColumns.TABLE_NAME,
+				new PurchasedItemSelection().accepted(true).and().userId("user"));
+	}
+
+	@Test
+	public void testProductTypeQueryUsesIndex() throws SQLException {
+		// ProductDbHelper.getProducts(Product.Type)
+		assertUsesIndex("idx_product_type_name_english_product_id", ProductColumns.TABLE_NAME,
+				new ProductSelection().type(Product.Type.LEAFY.name()));
+	}
+
+	@Test
+	public void testCatalogPageQueryUsesIndex() throws SQLException {
+		// ProductDbHelper.getProductPage
+		assertUsesIndex("idx_product_name_english_product_id", ProductColumns.TABLE_NAME,
+				new ProductSelection().after("tomato", "id").orderByNameEnglish().orderByProductId().limit(30));
+	}
+
+	private void assertUsesIndex(String index, String table, AbstractSelection<?> selection) throws SQLException {
+		String plan = database.explain(TestDatabase.toSql(table, new String[]{"*"}, selection), selection.args());
+		assertTrue(plan, plan.contains("INDEX " + index));
+	}
+}
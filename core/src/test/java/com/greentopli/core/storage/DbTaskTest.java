@@ -0,0 +1,95 @@
+package com.greentopli.core.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Result or failure of work is delivered through result executor, unless task was cancelled.
+ */
+
+public class DbTaskTest {
+	private final List<Runnable> mPosted = new ArrayList<>();
+	private final Executor mMainThread = new Executor() {
+		@Override
+		public void execute(Runnable runnable) {
+			mPosted.add(runnable);
+		}
+	};
+	private String mResult;
+	private Exception mError;
+	private final DbTask.Callback<String> mCallback = new DbTask.Callback<String>() {
+		@Override
+		public void onResult(String result) {
+			mResult = result;
+		}
+
+		@Override
+		public void onError(Exception e) {
+			mError = e;
+		}
+	};
+
+	@Test
+	public void testResult() {
+		DbTask<String> task = new DbTask<>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "cart";
+			}
+		}, mCallback, mMainThread);
+		task.run();
+		// nothing delivered on worker thread
+		assertNull(mResult);
+		runPosted();
+		assertEquals("cart", mResult);
+		assertNull(mError);
+	}
+
+	@Test
+	public void testError() {
+		final IllegalStateException failure = new IllegalStateException("database locked");
+		DbTask<String> task = new DbTask<>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				throw failure;
+			}
+		}, mCallback, mMainThread);
+		task.run();
+		assertNull(mError);
+		runPosted();
+		assertSame(failure, mError);
+		assertNull(mResult);
+	}
+
+	@Test
+	public void testCancelledAfterWork() {
+		DbTask<String> task = new DbTask<>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				throw new Exception();
+			}
+		}, mCallback, mMainThread);
+		task.run();
+		task.cancel();
+		runPosted();
+		assertTrue(task.isCancelled());
+		assertNull(mError);
+		assertNull(mResult);
+	}
+
+	private void runPosted() {
+		for (Runnable runnable : mPosted) {
+			runnable.run();
+		}
+		mPosted.clear();
+	}
+}
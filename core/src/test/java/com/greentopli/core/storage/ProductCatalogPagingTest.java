@@ -0,0 +1,158 @@
+package com.greentopli.core.storage;
+
+import com.greentopli.core.storage.base.TestDatabase;
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.core.storage.product.ProductSelection;
+import com.greentopli.model.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Walks catalog with the keyset selection of ProductDbHelper.getProductPage on small & large catalogs.
+ */
+
+public class ProductCatalogPagingTest {
+	private static final int PAGE_SIZE = 30;
+	private static final int SMALL_CATALOG = 100;
+	private static final int LARGE_CATALOG = 100000;
+	// a thousand times more products may cost a page little more, e.g. one more level of index
+	private static final int MAX_PAGE_COST_RATIO = 5;
+	private static final int RUNS = 50;
+	private static final String[] NAMES = {"tomato", "potato", "onion", "spinach", "cabbage", "carrot", "banana", "mango"};
+	private static final String[] PAGE_COLUMNS = {ProductColumns.NAME_ENGLISH, ProductColumns.PRODUCT_ID};
+
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = TestDatabase.inMemory().createSchema();
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		database.close();
+	}
+
+	@Test
+	public void testSmallCatalog() throws SQLException {
+		walkCatalog(SMALL_CATALOG);
+	}
+
+	@Test
+	public void testLargeCatalog() throws SQLException {
+		walkCatalog(LARGE_CATALOG);
+	}
+
+	@Test
+	public void testPageCostIsFlat() throws SQLException {
+		insertProducts(0, SMALL_CATALOG);
+		// page in middle of catalog, cabbage & banana come before it, names are stored capitalized
+		String[] middle = {"Carrot 0", "id0"};
+		assertPageUsesIndex(middle);
+		long smallPageTime = pageTime(middle);
+
+		insertProducts(SMALL_CATALOG, LARGE_CATALOG);
+		assertPageUsesIndex(middle);
+		long largePageTime = pageTime(middle);
+
+		// no scan or sort of whole catalog, which would be about thousand times slower
+		assertTrue(String.format("page of %d products %d ns, of %d products %d ns",
+				SMALL_CATALOG, smallPageTime, LARGE_CATALOG, largePageTime),
+				largePageTime < MAX_PAGE_COST_RATIO * smallPageTime);
+	}
+
+	private void walkCatalog(int catalogSize) throws SQLException {
+		insertProducts(0, catalogSize);
+
+		List<String[]> page = queryPage(null);
+		assertEquals(PAGE_SIZE, page.size());
+
+		// every product is seen exactly once & in catalog order
+		Set<String> seen = new HashSet<>();
+		String[] previous = null;
+		while (!page.isEmpty()) {
+			for (String[] product : page) {
+				assertTrue(product[1], seen.add(product[1]));
+				if (previous != null) {
+					int order = previous[0].compareTo(product[0]);
+					assertTrue(order < 0 || (order == 0 && previous[1].compareTo(product[1]) < 0));
+				}
+				previous = product;
+			}
+			page = queryPage(previous);
+		}
+		assertEquals(catalogSize, seen.size());
+	}
+
+	/**
+	 * @return best time of first page & page after {@code after}, so warm up & garbage collection
+	 * don't decide outcome
+	 */
+	private long pageTime(String[] after) throws SQLException {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			assertEquals(PAGE_SIZE, queryPage(null).size());
+			assertEquals(PAGE_SIZE, queryPage(after).size());
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private void assertPageUsesIndex(String[] after) throws SQLException {
+		for (String[] pageAfter : new String[][]{null, after}) {
+			ProductSelection selection = selection(pageAfter);
+			String plan = database.explain(TestDatabase.toSql(ProductColumns.TABLE_NAME, PAGE_COLUMNS, selection),
+					selection.args());
+			assertTrue(plan, plan.contains("INDEX idx_product_name_english_product_id"));
+			// rows come in index order, no sort of whole catalog
+			assertFalse(plan, plan.contains("TEMP B-TREE"));
+		}
+	}
+
+	/**
+	 * @param after name & product id of last product on previous page
+	 */
+	private List<String[]> queryPage(String[] after) throws SQLException {
+		return database.query(ProductColumns.TABLE_NAME, PAGE_COLUMNS, selection(after));
+	}
+
+	/**
+	 * Selection of ProductDbHelper.getProductPage
+	 */
+	private static ProductSelection selection(String[] after) {
+		ProductSelection selection = new ProductSelection();
+		if (after != null)
+			selection.after(after[0], after[1]);
+		selection.orderByNameEnglish().orderByProductId().limit(PAGE_SIZE);
+		return selection;
+	}
+
+	/**
+	 * Inserts products {@code from} up to {@code to}, their names & ids don't depend on catalog size
+	 */
+	private void insertProducts(int from, int to) throws SQLException {
+		List<Product> products = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			// every name is used twice so paging has to break ties by product id
+			String name = NAMES[i % NAMES.length] + " " + (i / (2 * NAMES.length));
+			Product product = new Product(name, name, i % 2 == 0 ? Product.Type.LEAFY : Product.Type.FRUITY,
+					i % 3 == 0 ? Product.Volume.QUANTITY : Product.Volume.WEIGHT, 10);
+			product.setId("id" + i);
+			products.add(product);
+		}
+		database.insertProducts(products);
+	}
+}
@@ -0,0 +1,32 @@
+package com.greentopli.core.storage;
+
+import android.content.pm.ProviderInfo;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowContentResolver;
+
+/**
+ * DatabaseProvider on a fresh database of the Robolectric application, registered with its content resolver.
+ */
+
+public class TestDatabaseProvider extends DatabaseProvider {
+	@Override
+	protected SQLiteOpenHelper createSqLiteOpenHelper() {
+		// shared instance would still point at database of previous test
+		return DatabaseSQLiteOpenHelper.newInstance(getContext());
+	}
+
+	public static TestDatabaseProvider register() {
+		TestDatabaseProvider provider = new TestDatabaseProvider();
+		ProviderInfo info = new ProviderInfo();
+		info.authority = AUTHORITY;
+		provider.attachInfo(RuntimeEnvironment.application, info);
+		ShadowContentResolver.registerProvider(AUTHORITY, provider);
+		return provider;
+	}
+
+	public void close() {
+		mSqLiteOpenHelper.close();
+	}
+}
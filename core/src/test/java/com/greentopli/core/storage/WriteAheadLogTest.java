@@ -0,0 +1,132 @@
+package com.greentopli.core.storage;
+
+import com.greentopli.core.storage.base.TestDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Reader on a second connection while a sync holds an open write transaction, with write-ahead log
+ * as DatabaseSQLiteOpenHelper enables it & with rollback journal it replaced.
+ */
+
+public class WriteAheadLogTest {
+	private static final int CART_SIZE = 10;
+	// about what order history sync writes in one transaction for a long time customer
+	private static final int ORDER_SIZE = 10000;
+	private static final int READS = 20;
+	// reads only need to stay in same order of magnitude, a blocked read would fail or take seconds
+	private static final int LATENCY_FACTOR = 10;
+	private static final long LATENCY_SLACK_NANOS = 50 * 1000 * 1000L;
+
+	private File databaseFile;
+	private TestDatabase writer;
+	private TestDatabase reader;
+
+	@Before
+	public void setUp() throws Exception {
+		databaseFile = File.createTempFile("write_ahead_log", ".db");
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		if (reader != null)
+			reader.close();
+		if (writer != null)
+			writer.close();
+		// log & shared memory index live next to database
+		new File(databaseFile.getPath() + "-wal").delete();
+		new File(databaseFile.getPath() + "-shm").delete();
+		databaseFile.delete();
+	}
+
+	@Test
+	public void testReadDuringWrite() throws SQLException {
+		open("WAL");
+		writer.execute("BEGIN EXCLUSIVE");
+		insertPurchasedItems(ORDER_SIZE, true);
+
+		// reader is not blocked & sees last committed state only
+		assertEquals(CART_SIZE, countPurchasedItems());
+		writer.execute("COMMIT");
+		assertEquals(CART_SIZE + ORDER_SIZE, countPurchasedItems());
+	}
+
+	@Test
+	public void testReadLatencyDuringWrite() throws SQLException {
+		open("WAL");
+		insertPurchasedItems(ORDER_SIZE, true);
+		long baseline = readCart();
+
+		writer.execute("BEGIN EXCLUSIVE");
+		insertPurchasedItems(ORDER_SIZE, true);
+		long duringWrite = readCart();
+		writer.execute("COMMIT");
+
+		assertTrue("baseline " + baseline + " ns, during write " + duringWrite + " ns",
+				duringWrite < baseline * LATENCY_FACTOR + LATENCY_SLACK_NANOS);
+	}
+
+	@Test
+	public void testRollbackJournalBlocksReader() throws SQLException {
+		open("DELETE");
+		writer.execute("BEGIN EXCLUSIVE");
+		insertPurchasedItems(ORDER_SIZE, true);
+		try {
+			countPurchasedItems();
+			fail("Reader must wait for writer without write-ahead log");
+		} catch (SQLException expected) {
+		}
+		writer.execute("COMMIT");
+		assertEquals(CART_SIZE + ORDER_SIZE, countPurchasedItems());
+	}
+
+	private void open(String journalMode) throws SQLException {
+		writer = TestDatabase.open(databaseFile);
+		assertEquals(journalMode.toLowerCase(), writer.query("PRAGMA journal_mode=" + journalMode).get(0)[0].toLowerCase());
+		// same as DatabaseSQLiteOpenHelper.enableWriteAheadLogging
+		writer.execute("PRAGMA synchronous=NORMAL");
+		writer.createSchema();
+		insertPurchasedItems(CART_SIZE, false);
+
+		reader = TestDatabase.open(databaseFile);
+		// fail right away instead of waiting for writer, so a blocked read shows up as exception
+		reader.execute("PRAGMA busy_timeout=0");
+	}
+
+	private void insertPurchasedItems(int count, boolean accepted) throws SQLException {
+		for (int i = 0; i < count; i++) {
+			writer.execute("INSERT INTO purchased_item (purchase_id, user_id, product_id, date_requested, "
+					+ "date_accepted, accepted, completed, volume, total_price) VALUES ('"
+					+ (accepted ? "order" : "cart") + "', 'user', 'product" + i + "', 0, 0, "
+					+ (accepted ? 1 : 0) + ", 0, 250, 10)");
+		}
+	}
+
+	/**
+	 * Reads cart as cart screen does, best of several reads so warm up & garbage collection don't decide outcome.
+	 *
+	 * @return nanoseconds taken by fastest read
+	 */
+	private long readCart() throws SQLException {
+		long fastest = Long.MAX_VALUE;
+		for (int i = 0; i < READS; i++) {
+			long start = System.nanoTime();
+			assertEquals(CART_SIZE, reader.query("SELECT * FROM purchased_item WHERE accepted=?", "0").size());
+			fastest = Math.min(fastest, System.nanoTime() - start);
+		}
+		return fastest;
+	}
+
+	private int countPurchasedItems() throws SQLException {
+		return reader.count("SELECT COUNT(*) FROM purchased_item");
+	}
+}
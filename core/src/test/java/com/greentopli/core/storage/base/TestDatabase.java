@@ -0,0 +1,218 @@
+package com.greentopli.core.storage.base;
+
+import com.greentopli.core.storage.DatabaseMigrations;
+import com.greentopli.core.storage.DatabaseSQLiteOpenHelper;
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
+import com.greentopli.model.Product;
+import com.greentopli.model.PurchasedItem;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Schema of DatabaseSQLiteOpenHelper on plain SQLite, queried the way DatabaseProvider queries it.
+ */
+
+public class TestDatabase {
+	private final Connection connection;
+
+	private TestDatabase(Connection connection) {
+		this.connection = connection;
+	}
+
+	public static TestDatabase inMemory() throws SQLException {
+		return new TestDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+	}
+
+	/**
+	 * Several instances may open same file, e.g. a writer & a reader.
+	 */
+	public static TestDatabase open(File file) throws SQLException {
+		return new TestDatabase(DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath()));
+	}
+
+	/**
+	 * Creates tables & runs every migration, as a fresh install followed by upgrades does.
+	 */
+	public TestDatabase createSchema() throws SQLException {
+		execute(DatabaseSQLiteOpenHelper.SQL_CREATE_TABLE_PRODUCT);
+		execute(DatabaseSQLiteOpenHelper.SQL_CREATE_TABLE_PURCHASED_ITEM);
+		execute(DatabaseSQLiteOpenHelper.SQL_CREATE_TABLE_USER);
+		migrate();
+		return this;
+	}
+
+	public void migrate() throws SQLException {
+		for (String statement : DatabaseMigrations.getStatements(1, DatabaseSQLiteOpenHelper.DATABASE_VERSION)) {
+			execute(statement);
+		}
+	}
+
+	public Connection getConnection() {
+		return connection;
+	}
+
+	public void close() throws SQLException {
+		connection.close();
+	}
+
+	public void execute(String sql) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(sql);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Inserts products in one transaction, with values ProductDbHelper writes.
+	 */
+	public void insertProducts(List<Product> products) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("INSERT INTO " + ProductColumns.TABLE_NAME + " ("
+				+ ProductColumns.PRODUCT_ID + ", " + ProductColumns.NAME_ENGLISH + ", " + ProductColumns.NAME_HINGLISH + ", "
+				+ ProductColumns.IMAGE_URL + ", " + ProductColumns.VOLUME + ", " + ProductColumns.TYPE + ", "
+				+ ProductColumns.PRICE + ", " + ProductColumns.VOLUME_SET + ", " + ProductColumns.MIN_VOLUME + ", "
+				+ ProductColumns.MAX_VOLUME + ", " + ProductColumns.TIME + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		for (Product product : products) {
+			statement.setString(1, product.getId());
+			statement.setString(2, product.getName_english());
+			statement.setString(3, product.getName_hinglish());
+			statement.setString(4, product.getImageUrl());
+			statement.setString(5, product.getVolume().name());
+			statement.setString(6, product.getType().name());
+			statement.setInt(7, product.getPrice());
+			statement.setInt(8, product.getVolumeSet());
+			statement.setInt(9, product.getMinimumVolume());
+			statement.setInt(10, product.getMaximumVolume());
+			statement.setLong(11, product.getTime());
+			statement.addBatch();
+		}
+		executeBatch(statement);
+	}
+
+	/**
+	 * Inserts purchased items in one transaction, with values CartDbHelper writes.
+	 */
+	public void insertPurchasedItems(List<PurchasedItem> items) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("INSERT INTO " + PurchasedItemColumns.TABLE_NAME + " ("
+				+ PurchasedItemColumns.PURCHASE_ID + ", " + PurchasedItemColumns.PRODUCT_ID + ", "
+				+ PurchasedItemColumns.USER_ID + ", " + PurchasedItemColumns.VOLUME + ", " + PurchasedItemColumns.ACCEPTED + ", "
+				+ PurchasedItemColumns.COMPLETED + ", " + PurchasedItemColumns.DATE_REQUESTED + ", "
+				+ PurchasedItemColumns.DATE_ACCEPTED + ", " + PurchasedItemColumns.TOTAL_PRICE + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		for (PurchasedItem item : items) {
+			statement.setString(1, item.getOrderId());
+			statement.setString(2, item.getProductId());
+			statement.setString(3, item.getUserId());
+			statement.setInt(4, item.getVolume());
+			statement.setInt(5, item.isAccepted() ? 1 : 0);
+			statement.setInt(6, item.isCompleted() ? 1 : 0);
+			statement.setLong(7, item.getDateRequested());
+			statement.setLong(8, item.getDateCompleted());
+			statement.setInt(9, item.getTotalPrice());
+			statement.addBatch();
+		}
+		executeBatch(statement);
+	}
+
+	private void executeBatch(PreparedStatement statement) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			statement.executeBatch();
+			connection.commit();
+		} finally {
+			statement.close();
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * @param args bound as text, like selections of DatabaseProvider bind every argument
+	 */
+	public PreparedStatement prepare(String sql, String... args) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql);
+		for (int i = 0; args != null && i < args.length; i++) {
+			statement.setString(i + 1, args[i]);
+		}
+		return statement;
+	}
+
+	/**
+	 * @return every column of every row as text
+	 */
+	public List<String[]> query(String sql, String... args) throws SQLException {
+		PreparedStatement statement = prepare(sql, args);
+		try {
+			ResultSet result = statement.executeQuery();
+			int columns = result.getMetaData().getColumnCount();
+			List<String[]> rows = new ArrayList<>();
+			while (result.next()) {
+				String[] row = new String[columns];
+				for (int i = 0; i < columns; i++) {
+					row[i] = result.getString(i + 1);
+				}
+				rows.add(row);
+			}
+			return rows;
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Query built from selection as DatabaseProvider builds it, including group by, having & limit.
+	 */
+	public List<String[]> query(String tables, String[] projection, AbstractSelection<?> selection) throws SQLException {
+		return query(toSql(tables, projection, selection), selection.queryArgs());
+	}
+
+	public static String toSql(String tables, String[] projection, AbstractSelection<?> selection) {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		for (int i = 0; i < projection.length; i++) {
+			if (i > 0)
+				sql.append(", ");
+			sql.append(projection[i]);
+		}
+		sql.append(" FROM ").append(tables);
+		if (!selection.sel().trim().isEmpty())
+			sql.append(" WHERE ").append(selection.sel());
+		if (selection.mGroupBy != null)
+			sql.append(" GROUP BY ").append(selection.mGroupBy);
+		if (selection.mHaving != null)
+			sql.append(" HAVING ").append(selection.mHaving);
+		if (selection.order() != null)
+			sql.append(" ORDER BY ").append(selection.order());
+		if (selection.mLimit != null)
+			sql.append(" LIMIT ").append(selection.mLimit);
+		return sql.toString();
+	}
+
+	/**
+	 * @return first column of first row as number, 0 without rows
+	 */
+	public int count(String sql, String... args) throws SQLException {
+		List<String[]> rows = query(sql, args);
+		return rows.isEmpty() || rows.get(0)[0] == null ? 0 : Integer.parseInt(rows.get(0)[0]);
+	}
+
+	/**
+	 * @return query plan, one line per step
+	 */
+	public String explain(String sql, String... args) throws SQLException {
+		StringBuilder plan = new StringBuilder();
+		for (String[] row : query("EXPLAIN QUERY PLAN " + sql, args)) {
+			// detail is last column
+			plan.append(row[row.length - 1]).append('\n');
+		}
+		return plan.toString();
+	}
+}
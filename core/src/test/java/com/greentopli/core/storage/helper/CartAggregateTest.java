@@ -0,0 +1,49 @@
+package com.greentopli.core.storage.helper;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cart totals adjusted by single row changes must match totals summed again from all rows.
+ */
+
+public class CartAggregateTest {
+
+	@Test
+	public void testRowChanges() {
+		Map<Long, Integer> rows = new HashMap<>();
+		rows.put(1L, 40);
+		rows.put(2L, 25);
+		CartAggregate aggregate = new CartAggregate();
+		aggregate.reset(rows);
+		assertEquals(2, aggregate.getItemCount());
+		assertEquals(65, aggregate.getSubtotal());
+
+		// volume of one line increased
+		aggregate.put(1L, 80);
+		assertEquals(2, aggregate.getItemCount());
+		assertEquals(105, aggregate.getSubtotal());
+
+		aggregate.put(3L, 10);
+		aggregate.remove(2L);
+		assertEquals(2, aggregate.getItemCount());
+		assertEquals(90, aggregate.getSubtotal());
+
+		// row which was never in cart
+		aggregate.remove(7L);
+		assertEquals(90, aggregate.getSubtotal());
+	}
+
+	@Test
+	public void testResetReplacesRows() {
+		CartAggregate aggregate = new CartAggregate();
+		aggregate.put(1L, 40);
+		aggregate.reset(new HashMap<Long, Integer>());
+		assertEquals(0, aggregate.getItemCount());
+		assertEquals(0, aggregate.getSubtotal());
+	}
+}
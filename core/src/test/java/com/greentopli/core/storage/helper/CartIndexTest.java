@@ -0,0 +1,160 @@
+package com.greentopli.core.storage.helper;
+
+import android.os.Build;
+
+import com.greentopli.core.storage.TestDatabaseProvider;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemContentValues;
+import com.greentopli.model.PurchasedItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cart state lookups & scrolling through catalog the way ProductAdapter binds items.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = Build.VERSION_CODES.M)
+public class CartIndexTest {
+	private static final int CATALOG_SIZE = 5000;
+	private static final int CART_SIZE = 200;
+	private static final int SCROLL_PASSES = 200;
+
+	private CartIndex cartIndex;
+
+	@Before
+	public void setUp() {
+		cartIndex = new CartIndex(null);
+		Map<Long, PurchasedItem> cartItems = new HashMap<>();
+		for (int i = 0; i < CART_SIZE; i++) {
+			cartItems.put((long) i, cartItem(productId(i * (CATALOG_SIZE / CART_SIZE)), 250));
+		}
+		cartIndex.setCartItems(cartItems);
+	}
+
+	@Test
+	public void testLookups() {
+		assertEquals(CART_SIZE, cartIndex.getItemCount());
+		assertTrue(cartIndex.isProductAddedToCart(productId(0)));
+		assertFalse(cartIndex.isProductAddedToCart(productId(1)));
+		assertEquals(250, cartIndex.getCartItem(productId(0)).getVolume());
+		// missing product gives empty item like CartDbHelper.getCartItem
+		assertNull(cartIndex.getCartItem(productId(1)).getProductId());
+	}
+
+	@Test
+	public void testLookupsBeforeLoad() {
+		TestDatabaseProvider provider = TestDatabaseProvider.register();
+		try {
+			new PurchasedItemContentValues().putPurchaseId("cart").putUserId("user@example.com")
+					.putProductId(productId(1)).putVolume(500).putTotalPrice(50).putAccepted(false).putCompleted(false)
+					.putDateRequested(0).putDateAccepted(0)
+					.insert(RuntimeEnvironment.application.getContentResolver());
+			CartIndex index = new CartIndex(new CartDbHelper(RuntimeEnvironment.application));
+			assertFalse(index.isLoaded());
+			// cart is read from database instead of taken as empty
+			assertTrue(index.isProductAddedToCart(productId(1)));
+			assertFalse(index.isProductAddedToCart(productId(2)));
+			assertEquals(500, index.getCartItem(productId(1)).getVolume());
+			assertEquals(1, index.getItemCount());
+
+			index.setCartItems(new HashMap<Long, PurchasedItem>());
+			assertTrue(index.isLoaded());
+			assertFalse(index.isProductAddedToCart(productId(1)));
+		} finally {
+			provider.close();
+		}
+	}
+
+	@Test
+	public void testItemsAreCopied() {
+		PurchasedItem item = cartIndex.getCartItem(productId(0));
+		item.setVolume(1000);
+		assertEquals(250, cartIndex.getCartItem(productId(0)).getVolume());
+
+		PurchasedItem change = cartItem(productId(0), 500);
+		cartIndex.setCartItemVolume(change);
+		assertEquals(500, cartIndex.getCartItem(productId(0)).getVolume());
+		// copy handed out earlier keeps volume it was read with
+		assertEquals(1000, item.getVolume());
+	}
+
+	@Test
+	public void testReplacedItems() {
+		Map<Long, PurchasedItem> cartItems = new HashMap<>();
+		cartItems.put(1000L, cartItem(productId(1), 250));
+		cartIndex.setCartItems(cartItems);
+		assertEquals(1, cartIndex.getItemCount());
+		assertFalse(cartIndex.isProductAddedToCart(productId(0)));
+		assertTrue(cartIndex.isProductAddedToCart(productId(1)));
+	}
+
+	@Test
+	public void testRowChanges() {
+		String addedProduct = productId(1);
+		Map<Long, PurchasedItem> changedRows = new HashMap<>();
+		changedRows.put(1000L, cartItem(addedProduct, 500));
+		changedRows.put(1L, cartItem(productId(CATALOG_SIZE / CART_SIZE), 750));
+		// row 2 was queried but has left the cart, row 0 was deleted
+		assertTrue(cartIndex.applyRowChanges(Arrays.asList(1000L, 1L, 2L), changedRows, Collections.singletonList(0L)));
+		assertEquals(CART_SIZE - 1, cartIndex.getItemCount());
+		assertTrue(cartIndex.isProductAddedToCart(addedProduct));
+		assertEquals(750, cartIndex.getCartItem(productId(CATALOG_SIZE / CART_SIZE)).getVolume());
+		assertFalse(cartIndex.isProductAddedToCart(productId(0)));
+		assertFalse(cartIndex.isProductAddedToCart(productId(2 * (CATALOG_SIZE / CART_SIZE))));
+
+		// same rows read again after own write are no change
+		assertFalse(cartIndex.applyRowChanges(Collections.singletonList(1000L), changedRows,
+				Collections.<Long>emptyList()));
+	}
+
+	@Test
+	public void testLocalWrites() {
+		assertTrue(cartIndex.putCartItem(1000L, cartItem(productId(1), 250)));
+		assertTrue(cartIndex.isProductAddedToCart(productId(1)));
+		assertTrue(cartIndex.removeProducts(Collections.singletonList(productId(1))));
+		assertFalse(cartIndex.isProductAddedToCart(productId(1)));
+		// deleting row of removed product later is no change
+		assertFalse(cartIndex.applyRowChanges(Collections.<Long>emptyList(), Collections.<Long, PurchasedItem>emptyMap(),
+				Collections.singletonList(1000L)));
+		assertTrue(cartIndex.clear());
+		assertEquals(0, cartIndex.getItemCount());
+	}
+
+	@Test
+	public void testScroll() {
+		int checked = 0;
+		for (int pass = 0; pass < SCROLL_PASSES; pass++) {
+			for (int position = 0; position < CATALOG_SIZE; position++) {
+				if (cartIndex.isProductAddedToCart(productId(position)))
+					checked++;
+			}
+		}
+		assertEquals(SCROLL_PASSES * CART_SIZE, checked);
+	}
+
+	private static PurchasedItem cartItem(String productId, int volume) {
+		PurchasedItem item = new PurchasedItem("user@example.com", productId);
+		item.setVolume(volume);
+		item.setTotalPrice(volume / 10);
+		return item;
+	}
+
+	private static String productId(int position) {
+		return "product-" + position;
+	}
+}
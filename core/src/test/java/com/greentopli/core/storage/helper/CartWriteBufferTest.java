@@ -0,0 +1,160 @@
+package com.greentopli.core.storage.helper;
+
+import com.greentopli.model.Product;
+import com.greentopli.model.PurchasedItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Coalescing of volume changes, quiet period before write & flush ahead of checkout.
+ */
+
+public class CartWriteBufferTest {
+	private final Map<String, Integer> database = new HashMap<>();
+	private final List<Map<String, Integer>> writes = new ArrayList<>();
+	private final List<Runnable> background = new ArrayList<>();
+	private final Map<Runnable, Long> scheduled = new LinkedHashMap<>();
+	private long now;
+	private CartIndex cartIndex;
+	private CartWriteBuffer buffer;
+
+	@Before
+	public void setUp() {
+		cartIndex = new CartIndex(null);
+		Map<Long, PurchasedItem> cartItems = new HashMap<>();
+		cartItems.put(1L, cartItem("tomato", 250));
+		cartItems.put(2L, cartItem("onion", 500));
+		cartIndex.setCartItems(cartItems);
+		database.put("tomato", 250);
+		database.put("onion", 500);
+
+		CartWriteBuffer.Scheduler scheduler = new CartWriteBuffer.Scheduler() {
+			@Override
+			public void postDelayed(Runnable runnable, long delayMillis) {
+				scheduled.put(runnable, now + delayMillis);
+			}
+
+			@Override
+			public void removeCallbacks(Runnable runnable) {
+				scheduled.remove(runnable);
+			}
+		};
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable runnable) {
+				background.add(runnable);
+			}
+		};
+		buffer = new CartWriteBuffer(null, cartIndex, scheduler, executor) {
+			@Override
+			boolean writeVolumes(Map<String, Integer> volumes) {
+				writes.add(new LinkedHashMap<>(volumes));
+				database.putAll(volumes);
+				return true;
+			}
+		};
+	}
+
+	@Test
+	public void testCoalescing() {
+		for (int volume = 500; volume <= 2500; volume += 250) {
+			buffer.updateVolume(product("tomato"), volume);
+		}
+		buffer.updateVolume(product("onion"), 750);
+		buffer.updateVolume(product("onion"), 1000);
+		// index shows latest volume before anything is written
+		assertEquals(2500, cartIndex.getCartItem("tomato").getVolume());
+		assertTrue(writes.isEmpty());
+
+		advance(CartWriteBuffer.QUIET_MILLIS);
+		assertEquals(1, writes.size());
+		assertEquals(2, writes.get(0).size());
+		assertEquals(2500, (int) database.get("tomato"));
+		assertEquals(1000, (int) database.get("onion"));
+		assertFalse(buffer.hasPendingChanges());
+	}
+
+	@Test
+	public void testQuietPeriod() {
+		buffer.updateVolume(product("tomato"), 500);
+		advance(CartWriteBuffer.QUIET_MILLIS - 100);
+		// each change restarts quiet period
+		buffer.updateVolume(product("tomato"), 750);
+		advance(CartWriteBuffer.QUIET_MILLIS - 100);
+		assertTrue(writes.isEmpty());
+		assertTrue(buffer.hasPendingChanges());
+
+		advance(100);
+		assertEquals(1, writes.size());
+		assertEquals(750, (int) database.get("tomato"));
+	}
+
+	@Test
+	public void testFlushBeforeCheckout() {
+		buffer.updateVolume(product("tomato"), 1000);
+		// checkout task flushes on its own thread before reading cart
+		assertTrue(buffer.flush());
+		assertEquals(1000, (int) database.get("tomato"));
+		// nothing left for quiet period to write afterwards
+		advance(CartWriteBuffer.QUIET_MILLIS);
+		assertEquals(1, writes.size());
+	}
+
+	@Test
+	public void testFlushWhenScreenLeft() {
+		buffer.updateVolume(product("onion"), 250);
+		buffer.flushInBackground();
+		// handed to background right away, not after quiet period
+		assertTrue(scheduled.isEmpty());
+		assertEquals(1, background.size());
+		runBackground();
+		assertEquals(250, (int) database.get("onion"));
+		assertFalse(buffer.hasPendingChanges());
+	}
+
+	private void advance(long millis) {
+		now += millis;
+		for (Map.Entry<Runnable, Long> entry : new ArrayList<>(scheduled.entrySet())) {
+			if (entry.getValue() <= now) {
+				scheduled.remove(entry.getKey());
+				entry.getKey().run();
+			}
+		}
+		runBackground();
+	}
+
+	private void runBackground() {
+		List<Runnable> tasks = new ArrayList<>(background);
+		background.clear();
+		for (Runnable task : tasks) {
+			task.run();
+		}
+	}
+
+	private static Product product(String id) {
+		Product product = new Product();
+		product.setId(id);
+		product.setPrice(20);
+		product.setMinimumVolume(250);
+		return product;
+	}
+
+	private static PurchasedItem cartItem(String productId, int volume) {
+		PurchasedItem item = new PurchasedItem();
+		item.setProductId(productId);
+		item.setVolume(volume);
+		return item;
+	}
+}
@@ -0,0 +1,102 @@
+package com.greentopli.core.storage.helper;
+
+import android.os.Build;
+
+import com.greentopli.core.storage.TestDatabaseProvider;
+import com.greentopli.model.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Catalog replaced chunk by chunk, completed or aborted half way.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = Build.VERSION_CODES.M)
+public class CatalogIngestTest {
+	private static final long OLD_TIME = 1000;
+	private static final long NEW_TIME = 2000;
+
+	private TestDatabaseProvider provider;
+	private ProductDbHelper dbHelper;
+
+	@Before
+	public void setUp() {
+		provider = TestDatabaseProvider.register();
+		dbHelper = new ProductDbHelper(RuntimeEnvironment.application);
+		dbHelper.storeProducts(products("old", 0, 10, OLD_TIME));
+	}
+
+	@After
+	public void tearDown() {
+		provider.close();
+	}
+
+	@Test
+	public void testFinish() throws Exception {
+		CatalogIngest ingest = new CatalogIngest(dbHelper);
+		ingest.onChunk(products("new", 0, 5, NEW_TIME));
+		ingest.onChunk(products("new", 5, 8, NEW_TIME));
+		ingest.finish();
+
+		List<Product> catalog = dbHelper.getProducts();
+		assertEquals(8, catalog.size());
+		for (Product product : catalog) {
+			assertFalse(product.getId(), product.getId().startsWith("old"));
+		}
+		assertEquals(NEW_TIME + 7, ingest.getLatestProductTime());
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		CatalogIngest ingest = new CatalogIngest(dbHelper);
+		ingest.onChunk(products("new", 0, 5, NEW_TIME));
+		// waits for first chunk to be written
+		ingest.onChunk(products("new", 5, 8, NEW_TIME));
+		ingest.abort();
+
+		// newer products sit next to old ones, their time is no high-water mark for updates
+		int oldProducts = 0, newProducts = 0;
+		for (Product product : dbHelper.getProducts()) {
+			if (product.getId().startsWith("old"))
+				oldProducts++;
+			else
+				newProducts++;
+		}
+		assertEquals(10, oldProducts);
+		assertTrue(newProducts >= 5);
+	}
+
+	private static List<Product> products(String prefix, int from, int to, long time) {
+		List<Product> products = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			Product product = new Product();
+			product.setId(prefix + "-" + i);
+			product.setName_english(prefix + " product " + i);
+			product.setName_hinglish(prefix + " sabzi " + i);
+			product.setImageUrl("");
+			product.setType(Product.Type.LEAFY);
+			product.setVolume(Product.Volume.WEIGHT);
+			product.setMinimumVolume(250);
+			product.setMaximumVolume(5000);
+			product.setVolumeSet(250);
+			product.setPrice(20);
+			product.setTime(time + i);
+			products.add(product);
+		}
+		return products;
+	}
+}
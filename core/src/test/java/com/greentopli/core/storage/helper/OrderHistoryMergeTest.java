@@ -0,0 +1,64 @@
+package com.greentopli.core.storage.helper;
+
+import com.greentopli.model.PurchasedItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Order history received from server compared against stored history.
+ */
+
+public class OrderHistoryMergeTest {
+
+	@Test
+	public void testUnchangedHistory() {
+		List<PurchasedItem> local = Arrays.asList(item("o1", 250), item("o2", 500));
+		OrderHistoryMerge merge = OrderHistoryMerge.compute(local, Arrays.asList(item("o2", 500), item("o1", 250)));
+		assertFalse(merge.hasChanges());
+		assertEquals(2, merge.getUnchangedCount());
+	}
+
+	@Test
+	public void testChangedHistory() {
+		List<PurchasedItem> local = Arrays.asList(item("o1", 250), item("o2", 500), item("o3", 750));
+		PurchasedItem completed = item("o2", 500);
+		completed.setCompleted(true);
+		OrderHistoryMerge merge = OrderHistoryMerge.compute(local,
+				Arrays.asList(item("o1", 250), completed, item("o4", 1000)));
+
+		assertTrue(merge.hasChanges());
+		assertEquals(1, merge.getInsertedCount());
+		assertEquals("o4", merge.getInserted().get(0).getOrderId());
+		assertEquals(1, merge.getUpdatedCount());
+		assertEquals("o2", merge.getUpdated().get(0).getOrderId());
+		assertEquals(1, merge.getUnchangedCount());
+		assertEquals(Collections.singletonList("o3"), merge.getRemovedIds());
+	}
+
+	@Test
+	public void testFirstSync() {
+		OrderHistoryMerge merge = OrderHistoryMerge.compute(new ArrayList<PurchasedItem>(),
+				Arrays.asList(item("o1", 250), item("o1", 250)));
+		// duplicate item from server is stored once
+		assertEquals(1, merge.getInsertedCount());
+		assertEquals(0, merge.getRemovedCount());
+	}
+
+	private static PurchasedItem item(String orderId, int volume) {
+		PurchasedItem item = new PurchasedItem("user@example.com", "p-" + orderId);
+		item.setOrderId(orderId);
+		item.setVolume(volume);
+		item.setAccepted(true);
+		item.setDateRequested(1477699200000L);
+		return item;
+	}
+}
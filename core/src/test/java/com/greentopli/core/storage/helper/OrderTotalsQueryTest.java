@@ -0,0 +1,161 @@
+package com.greentopli.core.storage.helper;
+
+import com.greentopli.core.storage.base.TestDatabase;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemColumns;
+import com.greentopli.core.storage.purchaseditem.PurchasedItemSelection;
+import com.greentopli.model.PurchasedItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cart & order totals of CartDbHelper computed with SUM, COUNT & GROUP BY, compared with adding up every row.
+ */
+
+public class OrderTotalsQueryTest {
+	private static final String USER = "user@example.com";
+	private static final String OTHER_USER = "other@example.com";
+	private static final int ORDERS = 20;
+	private static final int LINES_PER_ORDER = 10;
+	private static final int CART_LINES = 5;
+	private static final String[] ROW_COLUMNS = new String[]{
+			PurchasedItemColumns.DATE_REQUESTED, PurchasedItemColumns.TOTAL_PRICE};
+
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = TestDatabase.inMemory().createSchema();
+		insertPurchasedItems();
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		database.close();
+	}
+
+	@Test
+	public void testCartSubtotal() throws SQLException {
+		List<String[]> subtotal = query(CartDbHelper.CART_SUBTOTAL_COLUMNS, CartDbHelper.getCartSubtotalSelection());
+		assertEquals(1, subtotal.size());
+
+		PurchasedItemSelection rows = new PurchasedItemSelection();
+		rows.accepted(false);
+		int expected = 0;
+		for (Total total : sumRows(rows).values()) {
+			expected += total.price;
+		}
+		assertEquals(expected, Integer.parseInt(subtotal.get(0)[0]));
+	}
+
+	@Test
+	public void testOrderSubtotal() throws SQLException {
+		long date = orderDate(ORDERS / 2);
+		List<String[]> subtotal = query(CartDbHelper.ORDER_SUBTOTAL_COLUMNS, CartDbHelper.getOrderSubtotalSelection(date));
+		assertEquals(1, subtotal.size());
+
+		PurchasedItemSelection rows = new PurchasedItemSelection();
+		rows.accepted(true).and().dateRequested(date);
+		// lines of both users ordered on same date
+		Total expected = sumRows(rows).get(date);
+		assertEquals(2 * LINES_PER_ORDER, expected.count);
+		assertEquals(expected.count, Integer.parseInt(subtotal.get(0)[0]));
+		assertEquals(expected.price, Integer.parseInt(subtotal.get(0)[1]));
+	}
+
+	@Test
+	public void testOrderHistorySummary() throws SQLException {
+		List<String[]> summary = query(CartDbHelper.ORDER_HISTORY_SUMMARY_COLUMNS,
+				CartDbHelper.getOrderHistorySummarySelection(USER, 0, 0));
+
+		PurchasedItemSelection rows = new PurchasedItemSelection();
+		rows.accepted(true).and().userId(USER).orderByDateRequested(true);
+		Map<Long, Total> expected = sumRows(rows);
+		assertEquals(ORDERS, expected.size());
+		assertEquals(expected.size(), summary.size());
+		int i = 0;
+		// both latest first
+		for (Map.Entry<Long, Total> entry : expected.entrySet()) {
+			String[] order = summary.get(i++);
+			assertEquals((long) entry.getKey(), Long.parseLong(order[0]));
+			assertEquals(entry.getValue().count, Integer.parseInt(order[1]));
+			assertEquals(entry.getValue().price, Integer.parseInt(order[2]));
+		}
+	}
+
+	@Test
+	public void testOrderHistorySummaryPage() throws SQLException {
+		long before = orderDate(ORDERS / 2);
+		List<String[]> page = query(CartDbHelper.ORDER_HISTORY_SUMMARY_COLUMNS,
+				CartDbHelper.getOrderHistorySummarySelection(USER, before, 3));
+		assertEquals(3, page.size());
+		for (int i = 0; i < page.size(); i++) {
+			assertEquals(orderDate(ORDERS / 2 - 1 - i), Long.parseLong(page.get(i)[0]));
+			assertEquals(LINES_PER_ORDER, Integer.parseInt(page.get(i)[1]));
+		}
+	}
+
+	private List<String[]> query(String[] projection, PurchasedItemSelection selection) throws SQLException {
+		return database.query(PurchasedItemColumns.TABLE_NAME, projection, selection);
+	}
+
+	/**
+	 * Adds up price of every selected row, keyed by request date in order rows are returned.
+	 */
+	private Map<Long, Total> sumRows(PurchasedItemSelection selection) throws SQLException {
+		Map<Long, Total> totals = new LinkedHashMap<>();
+		for (String[] row : query(ROW_COLUMNS, selection)) {
+			long date = Long.parseLong(row[0]);
+			Total total = totals.get(date);
+			if (total == null) {
+				total = new Total();
+				totals.put(date, total);
+			}
+			total.count++;
+			total.price += Integer.parseInt(row[1]);
+		}
+		return totals;
+	}
+
+	private void insertPurchasedItems() throws SQLException {
+		List<PurchasedItem> items = new ArrayList<>();
+		for (int order = 0; order < ORDERS; order++) {
+			for (int line = 0; line < LINES_PER_ORDER; line++) {
+				items.add(purchasedItem(USER, "product" + line, orderDate(order), true, 10 + order + line));
+				items.add(purchasedItem(OTHER_USER, "product" + line, orderDate(order), true, 15 + line));
+			}
+		}
+		for (int line = 0; line < CART_LINES; line++) {
+			items.add(purchasedItem(USER, "product" + line, 0, false, 20 + line));
+		}
+		database.insertPurchasedItems(items);
+	}
+
+	private static PurchasedItem purchasedItem(String userId, String productId,
+	                                           long dateRequested, boolean accepted, int totalPrice) {
+		PurchasedItem item = new PurchasedItem(userId, productId);
+		item.setDateRequested(dateRequested);
+		item.setAccepted(accepted);
+		item.setVolume(250);
+		item.setTotalPrice(totalPrice);
+		return item;
+	}
+
+	private static long orderDate(int order) {
+		return 1477000000000L + order * 60 * 60 * 1000L;
+	}
+
+	private static class Total {
+		int count;
+		int price;
+	}
+}
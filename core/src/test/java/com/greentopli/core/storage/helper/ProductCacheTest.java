@@ -0,0 +1,90 @@
+package com.greentopli.core.storage.helper;
+
+import android.content.ComponentCallbacks2;
+
+import com.greentopli.model.Product;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Caching, invalidation & trimming of products read through ProductDbHelper.
+ */
+
+public class ProductCacheTest {
+	private ProductCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new ProductCache();
+	}
+
+	@Test
+	public void testReadThrough() {
+		assertNull(cache.getProduct("p1"));
+		Product product = product("p1");
+		cache.putProduct(cache.getGeneration(), product);
+		assertSame(product, cache.getProduct("p1"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testListIsCopied() {
+		List<Product> list = new ArrayList<>();
+		list.add(product("p1"));
+		cache.putList(cache.getGeneration(), "all", list);
+		list.add(product("p2"));
+
+		List<Product> cached = cache.getList("all");
+		assertEquals(1, cached.size());
+		cached.clear();
+		assertEquals(1, cache.getList("all").size());
+	}
+
+	@Test
+	public void testInvalidation() {
+		cache.putProduct(cache.getGeneration(), product("p1"));
+		cache.putList(cache.getGeneration(), "all", new ArrayList<Product>());
+		cache.invalidate();
+		assertNull(cache.getProduct("p1"));
+		assertNull(cache.getList("all"));
+	}
+
+	@Test
+	public void testResultOfQueryOverlappingInvalidationIsDropped() {
+		int generation = cache.getGeneration();
+		// catalog synced while query was running
+		cache.invalidate();
+		cache.putProduct(generation, product("p1"));
+		assertNull(cache.getProduct("p1"));
+	}
+
+	@Test
+	public void testTrimMemory() {
+		for (int i = 0; i < 400; i++) {
+			cache.putProduct(cache.getGeneration(), product("p" + i));
+		}
+		cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+		// least recently used half is gone
+		assertNull(cache.getProduct("p0"));
+		assertNotNull(cache.getProduct("p399"));
+
+		cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+		assertNull(cache.getProduct("p399"));
+	}
+
+	private static Product product(String id) {
+		Product product = new Product();
+		product.setId(id);
+		return product;
+	}
+}
@@ -0,0 +1,180 @@
+package com.greentopli.core.storage.helper;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Build;
+
+import com.greentopli.core.storage.TestDatabaseProvider;
+import com.greentopli.core.storage.base.BaseContentProvider;
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.core.storage.product.ProductCursor;
+import com.greentopli.core.storage.product.ProductSelection;
+import com.greentopli.model.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Catalog writes of ProductDbHelper through DatabaseProvider, rows they touch & notifications they send.
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = Build.VERSION_CODES.M)
+public class ProductDbHelperTest {
+	private static final int CATALOG_SIZE = 100;
+	private static final int LARGE_CATALOG_SIZE = 10000;
+
+	private TestDatabaseProvider provider;
+	private ContentResolver resolver;
+	private ProductDbHelper dbHelper;
+
+	@Before
+	public void setUp() {
+		provider = TestDatabaseProvider.register();
+		resolver = RuntimeEnvironment.application.getContentResolver();
+		dbHelper = new ProductDbHelper(RuntimeEnvironment.application);
+	}
+
+	@After
+	public void tearDown() {
+		provider.close();
+	}
+
+	@Test
+	public void testStoreLargeCatalog() {
+		List<ShadowContentResolver.NotifiedUri> notified = shadowOf(resolver).getNotifiedUris();
+		int notifiedBefore = notified.size();
+		// yields to other writers every BULK_INSERT_YIELD_ROWS rows, still one bulk insert
+		assertEquals(LARGE_CATALOG_SIZE, dbHelper.storeProducts(products(0, LARGE_CATALOG_SIZE)));
+		assertEquals(LARGE_CATALOG_SIZE, new ProductSelection().count(resolver));
+
+		assertEquals(notifiedBefore + 1, notified.size());
+		Uri uri = notified.get(notifiedBefore).uri;
+		assertEquals(ProductColumns.CONTENT_URI.getPath(), uri.getPath());
+		// too many rows to list, whole table is reported as changed
+		assertNull(uri.getQueryParameter(BaseContentProvider.QUERY_INSERTED));
+	}
+
+	@Test
+	public void testStoreSmallCatalog() {
+		List<ShadowContentResolver.NotifiedUri> notified = shadowOf(resolver).getNotifiedUris();
+		int notifiedBefore = notified.size();
+		assertEquals(3, dbHelper.storeProducts(products(0, 3)));
+
+		assertEquals(notifiedBefore + 1, notified.size());
+		String inserted = notified.get(notifiedBefore).uri.getQueryParameter(BaseContentProvider.QUERY_INSERTED);
+		assertEquals(3, inserted.split(",").length);
+	}
+
+	@Test
+	public void testStoreProductUpdates() {
+		assertEquals(CATALOG_SIZE, dbHelper.storeProducts(products(0, CATALOG_SIZE)));
+		Map<String, Long> rowIds = getRowIds();
+		long lastRowId = dbHelper.getLastRowId();
+
+		// two new products, one renamed, one with new price & one removed
+		List<Product> changed = products(CATALOG_SIZE, CATALOG_SIZE + 2);
+		Product renamed = product(5);
+		renamed.setName_english("Renamed 5");
+		changed.add(renamed);
+		Product repriced = product(6);
+		repriced.setPrice(99);
+		changed.add(repriced);
+		List<ShadowContentResolver.NotifiedUri> notified = shadowOf(resolver).getNotifiedUris();
+		int notifiedBefore = notified.size();
+		assertTrue(dbHelper.storeProductUpdates(changed, Collections.singletonList("product-7")));
+
+		Map<String, Long> updatedRowIds = getRowIds();
+		assertEquals(CATALOG_SIZE + 2 - 1, updatedRowIds.size());
+		assertFalse(updatedRowIds.containsKey("product-7"));
+		// only changed products are written, rest of catalog keeps its rows
+		int rewritten = 0;
+		for (Map.Entry<String, Long> entry : updatedRowIds.entrySet()) {
+			if (entry.getValue() > lastRowId)
+				rewritten++;
+			else
+				assertEquals(entry.getKey(), rowIds.get(entry.getKey()), entry.getValue());
+		}
+		assertEquals(changed.size(), rewritten);
+		assertEquals("Renamed 5", dbHelper.getProduct("product-5").getName_english());
+		assertEquals(99, dbHelper.getProduct("product-6").getPrice());
+		// whole batch is reported once
+		assertEquals(notifiedBefore + 1, notified.size());
+	}
+
+	@Test
+	public void testSearchProducts() {
+		List<Product> products = products(0, 3);
+		products.get(0).setName_english("Cherry tomato");
+		products.get(0).setName_hinglish("Chhota tamatar");
+		products.get(1).setName_english("Tomato");
+		products.get(1).setName_hinglish("Tamatar");
+		products.get(2).setName_english("Tamarind");
+		products.get(2).setName_hinglish("Imli");
+		dbHelper.storeProducts(products);
+
+		// order clause arguments are bound after those of selection by provider
+		List<Product> result = dbHelper.searchProducts("tam");
+		assertEquals(3, result.size());
+		assertEquals("product-2", result.get(0).getId());
+		assertEquals("product-1", result.get(1).getId());
+		assertEquals("product-0", result.get(2).getId());
+		assertTrue(dbHelper.searchProducts("%'").isEmpty());
+	}
+
+	/**
+	 * @return row id keyed by product id
+	 */
+	private Map<String, Long> getRowIds() {
+		ProductCursor cursor = new ProductSelection().query(resolver,
+				new String[]{ProductColumns._ID, ProductColumns.PRODUCT_ID});
+		Map<String, Long> rowIds = new HashMap<>();
+		while (cursor.moveToNext()) {
+			rowIds.put(cursor.getProductId(), cursor.getId());
+		}
+		cursor.close();
+		return rowIds;
+	}
+
+	private static List<Product> products(int from, int to) {
+		List<Product> products = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			products.add(product(i));
+		}
+		return products;
+	}
+
+	private static Product product(int i) {
+		Product product = new Product();
+		product.setId("product-" + i);
+		product.setName_english("Product " + i);
+		product.setName_hinglish("Sabzi " + i);
+		product.setImageUrl("https://green-topli.appspot.com/images/product-" + i + ".jpg");
+		product.setType(i % 2 == 0 ? Product.Type.LEAFY : Product.Type.FRUITY);
+		product.setVolume(Product.Volume.WEIGHT);
+		product.setMinimumVolume(250);
+		product.setMaximumVolume(5000);
+		product.setVolumeSet(250);
+		product.setPrice(20 + i % 50);
+		product.setTime(1000 + i);
+		return product;
+	}
+}
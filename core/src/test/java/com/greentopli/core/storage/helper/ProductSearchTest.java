@@ -0,0 +1,138 @@
+package com.greentopli.core.storage.helper;
+
+import com.greentopli.core.storage.base.TestDatabase;
+import com.greentopli.core.storage.product.ProductColumns;
+import com.greentopli.core.storage.product.ProductSelection;
+import com.greentopli.model.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Search selection of ProductDbHelper over index kept in sync by triggers, compared with LIKE search.
+ */
+
+public class ProductSearchTest {
+	private static final int CATALOG_SIZE = 5000;
+	private static final String[] NAMES = {"tomato", "potato", "onion", "spinach", "cabbage", "carrot", "banana", "mango"};
+	private static final String[] HINGLISH_NAMES = {"tamatar", "aloo", "pyaz", "palak", "patta gobi", "gajar", "kela", "aam"};
+	private static final String[] SEARCH_COLUMNS = new String[]{ProductColumns.PRODUCT_ID};
+
+	private static final String SQL_LIKE_SEARCH = "SELECT product_id FROM product WHERE "
+			+ "(name_english LIKE '%' || ? || '%' OR name_hinglish LIKE '%' || ? || '%') ORDER BY product_id";
+
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = TestDatabase.inMemory().createSchema();
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		database.close();
+	}
+
+	@Test
+	public void testIndexFollowsProductTable() throws SQLException {
+		insertProduct("p1", "tomato", "tamatar");
+		insertProduct("p2", "potato", "aloo");
+		assertEquals(Collections.singletonList("p1"), search("tom"));
+		assertEquals(Collections.singletonList("p2"), search("alo"));
+
+		// replaced through unique constraint, as done by catalog sync
+		insertProduct("p1", "tomato", "vilayati baingan");
+		assertEquals(1, database.count("SELECT COUNT(*) FROM " + ProductColumns.SEARCH_TABLE_NAME + " WHERE "
+				+ ProductColumns.SEARCH_TABLE_NAME + " MATCH 'tomato'"));
+		assertEquals(Collections.singletonList("p1"), search("vila"));
+		assertTrue(search("tamatar").isEmpty());
+
+		database.execute("UPDATE product SET name_hinglish = 'batata' WHERE product_id = 'p2'");
+		assertEquals(Collections.singletonList("p2"), search("bata"));
+
+		database.execute("DELETE FROM product WHERE product_id = 'p2'");
+		assertTrue(search("bata").isEmpty());
+		assertEquals(1, database.count("SELECT COUNT(*) FROM " + ProductColumns.SEARCH_TABLE_NAME));
+	}
+
+	@Test
+	public void testSearchOrder() throws SQLException {
+		insertProduct("potato", "potato", "aloo");
+		insertProduct("cherry", "cherry tomato", "chhota tamatar");
+		insertProduct("tomato", "tomato", "tamatar");
+		insertProduct("tamarind", "tamarind", "imli");
+		insertProduct("tamarillo", "tamarillo", "tree tomato");
+
+		// english prefix by name, then hinglish prefix, then any other word
+		assertEquals(Arrays.asList("tamarillo", "tamarind", "tomato", "cherry"), search("tam"));
+		assertEquals(Arrays.asList("tomato", "cherry", "tamarillo"), search("tom"));
+		// every term has to match, order follows first one
+		assertEquals(Arrays.asList("tomato", "cherry"), search("TAMATAR, tom"));
+	}
+
+	@Test
+	public void testSearchQueryIsBound() throws SQLException {
+		insertProduct("p1", "tomato", "tamatar");
+		// punctuation never reaches match or order clause
+		assertEquals(Collections.singletonList("p1"), search("'tom%"));
+		assertNull(ProductDbHelper.getSearchSelection(" '%_- "));
+	}
+
+	@Test
+	public void testSearchLargeCatalog() throws SQLException {
+		List<Product> products = new ArrayList<>(CATALOG_SIZE);
+		for (int i = 0; i < CATALOG_SIZE; i++) {
+			products.add(product("p" + i, NAMES[i % NAMES.length] + " " + i, HINGLISH_NAMES[i % HINGLISH_NAMES.length]));
+		}
+		database.insertProducts(products);
+
+		List<String> result = search("tamat");
+		assertEquals(CATALOG_SIZE / NAMES.length, result.size());
+		List<String> likeResult = new ArrayList<>();
+		for (String[] row : database.query(SQL_LIKE_SEARCH, "tamat", "tamat")) {
+			likeResult.add(row[0]);
+		}
+		Collections.sort(result);
+		assertEquals(likeResult, result);
+
+		// product rows are looked up by docid from index instead of scanning catalog
+		ProductSelection selection = ProductDbHelper.getSearchSelection("tamat");
+		String plan = database.explain(TestDatabase.toSql(ProductColumns.TABLE_NAME, SEARCH_COLUMNS, selection),
+				selection.queryArgs());
+		assertTrue(plan, plan.contains(ProductColumns.SEARCH_TABLE_NAME + " VIRTUAL TABLE"));
+		assertFalse(plan, plan.contains("SCAN TABLE " + ProductColumns.TABLE_NAME + "\n"));
+	}
+
+	private void insertProduct(String productId, String nameEnglish, String nameHinglish) throws SQLException {
+		database.insertProducts(Collections.singletonList(product(productId, nameEnglish, nameHinglish)));
+	}
+
+	private static Product product(String productId, String nameEnglish, String nameHinglish) {
+		Product product = new Product(nameEnglish, nameHinglish, Product.Type.LEAFY, Product.Volume.WEIGHT, 10);
+		product.setId(productId);
+		return product;
+	}
+
+	/**
+	 * @return product ids in order of ProductDbHelper.searchProducts
+	 */
+	private List<String> search(String query) throws SQLException {
+		List<String> ids = new ArrayList<>();
+		for (String[] row : database.query(ProductColumns.TABLE_NAME, SEARCH_COLUMNS, ProductDbHelper.getSearchSelection(query))) {
+			ids.add(row[0]);
+		}
+		return ids;
+	}
+}